@@ -0,0 +1,160 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+/**
+ * An immutable, typed representation of a
+ * <a href="https://github.com/quilljs/delta">Delta</a>, the format of the
+ * editor value.
+ * <p>
+ * The model is stored compactly: the text of all text inserts is packed into
+ * a single buffer and operations with equal formats share one attribute map.
+ */
+public final class Delta implements Serializable {
+
+    private final List<Op> ops;
+
+    /**
+     * Creates a delta consisting of the given operations.
+     *
+     * @param ops
+     *            the operations, not {@code null}
+     */
+    public Delta(List<Op> ops) {
+        Objects.requireNonNull(ops, "Ops cannot be null");
+        this.ops = pack(ops);
+    }
+
+    /**
+     * Creates a delta consisting of the given operations.
+     *
+     * @param ops
+     *            the operations
+     */
+    public Delta(Op... ops) {
+        this(Arrays.asList(ops));
+    }
+
+    /**
+     * Parses an editor value. The empty value is parsed into the empty
+     * document, which consists of a single line break.
+     *
+     * @param value
+     *            the value in Delta format, not {@code null}
+     * @return the parsed delta
+     */
+    public static Delta parse(String value) {
+        List<Op> ops = new ArrayList<>();
+        DeltaReader.read(value, ops::add);
+        return new Delta(ops);
+    }
+
+    /**
+     * Gets the operations of this delta.
+     *
+     * @return an unmodifiable list of the operations
+     */
+    public List<Op> getOps() {
+        return ops;
+    }
+
+    /**
+     * Gets the summed up length of all operations.
+     *
+     * @return the length of this delta
+     */
+    public int length() {
+        int length = 0;
+        for (Op op : ops) {
+            length += op.getLength();
+        }
+        return length;
+    }
+
+    /**
+     * Converts this delta into its JSON representation.
+     *
+     * @return the operations as JSON array
+     */
+    public JsonArray toJson() {
+        JsonArray json = Json.createArray();
+        for (Op op : ops) {
+            json.set(json.length(), op.toJson());
+        }
+        return json;
+    }
+
+    /**
+     * Converts this delta into an editor value. The empty document is
+     * converted into the empty string.
+     *
+     * @return the value in Delta format
+     */
+    public String toValue() {
+        return DeltaOps.toValue(toJson());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || o instanceof Delta && ops.equals(((Delta) o).ops);
+    }
+
+    @Override
+    public int hashCode() {
+        return ops.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toJson().toJson();
+    }
+
+    private static List<Op> pack(List<Op> ops) {
+        StringBuilder text = new StringBuilder();
+        for (Op op : ops) {
+            Objects.requireNonNull(op, "Op cannot be null");
+            if (op.isInsert() && !op.isEmbed()) {
+                text.append(op.getText());
+            }
+        }
+        String buffer = text.toString();
+        Map<Map<String, Object>, Map<String, Object>> interned = new HashMap<>();
+        List<Op> packed = new ArrayList<>(ops.size());
+        int start = 0;
+        for (Op op : ops) {
+            packed.add(op.share(buffer, start,
+                    Op.intern(op.getAttributes(), interned)));
+            if (op.isInsert() && !op.isEmbed()) {
+                start += op.getLength();
+            }
+        }
+        return Collections.unmodifiableList(packed);
+    }
+}
@@ -0,0 +1,590 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+
+/**
+ * Renders a <a href="https://github.com/quilljs/delta">Delta</a> into HTML
+ * on the server, without the need of a browser. The markup follows the one
+ * produced by the web component for its {@code htmlValue}: lines become
+ * paragraphs, headers, list items or code blocks, alignment is rendered as
+ * inline style and the custom formats of the editor, like tabs, readonly
+ * sections and placeholders, are rendered as their custom elements.
+ * <p>
+ * The widths of tabs are calculated by the browser at layout time and are
+ * therefore not part of the rendered markup. Placeholders are rendered with
+ * the default start tag {@code @} of the web component, or with the tags and
+ * alternative appearance pattern of the editor for
+ * {@link EnhancedRichTextEditor#getHtmlValue()}.
+ */
+public final class DeltaHtmlRenderer {
+
+    /**
+     * CSS values of formats, like colors and font families, without
+     * declaration separators, comments or escapes.
+     */
+    private static final Pattern CSS_VALUE = Pattern
+            .compile("[\\w\\s#%.,()'\"-]+");
+
+    /**
+     * The inline formats rendered as elements, from the outermost to the
+     * innermost one, like Quill nests them.
+     */
+    private static final List<String> INLINE_ORDER = Arrays.asList("pre-tab",
+            "tab", "line-part", "readonly", "code", "link", "script", "bold",
+            "italic", "strike", "underline");
+
+    private DeltaHtmlRenderer() {
+    }
+
+    /**
+     * Renders the given delta into HTML.
+     *
+     * @param delta
+     *            the delta to render, not {@code null}
+     * @return the HTML
+     */
+    public static String render(Delta delta) {
+        Objects.requireNonNull(delta, "Delta cannot be null");
+        return render(delta.getOps().iterator());
+    }
+
+    /**
+     * Renders the given editor value into HTML. The value is read
+     * operation by operation, without parsing the whole document first.
+     *
+     * @param value
+     *            the value in Delta format, not {@code null}
+     * @return the HTML
+     */
+    public static String render(String value) {
+        return render(new DeltaReader(value));
+    }
+
+    static String render(Iterator<Op> ops) {
+        return render(ops, PlaceholderAppearance.DEFAULT);
+    }
+
+    static String render(Iterator<Op> ops, PlaceholderAppearance appearance) {
+        Renderer renderer = new Renderer(appearance);
+        ops.forEachRemaining(renderer::accept);
+        return renderer.finish();
+    }
+
+    /**
+     * For internal use only. The tags around placeholders and the pattern of
+     * their alternative appearance, like the web component shows them.
+     */
+    static final class PlaceholderAppearance {
+        static final PlaceholderAppearance DEFAULT = new PlaceholderAppearance(
+                "@", "", null);
+
+        private final String start;
+        private final String end;
+        private final String altPattern;
+        private final Pattern compiledAltPattern;
+
+        PlaceholderAppearance(String start, String end, String altPattern) {
+            this.start = start == null ? "" : start;
+            this.end = end == null ? "" : end;
+            this.altPattern = altPattern;
+            Pattern compiled = null;
+            if (altPattern != null && !altPattern.isEmpty()) {
+                try {
+                    compiled = Pattern.compile(altPattern);
+                } catch (PatternSyntaxException e) {
+                    // not valid in Java, render without the alternative text
+                }
+            }
+            compiledAltPattern = compiled;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PlaceholderAppearance)) {
+                return false;
+            }
+            PlaceholderAppearance other = (PlaceholderAppearance) obj;
+            return start.equals(other.start) && end.equals(other.end)
+                    && Objects.equals(altPattern, other.altPattern);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, end, altPattern);
+        }
+    }
+
+    private static class Renderer {
+        private final PlaceholderAppearance appearance;
+        private final StringBuilder html = new StringBuilder();
+        private final StringBuilder line = new StringBuilder();
+        private int tabs;
+        private String container;
+
+        Renderer(PlaceholderAppearance appearance) {
+            this.appearance = appearance;
+        }
+
+        void accept(Op op) {
+            if (!op.isInsert()) {
+                return;
+            }
+            if (op.isEmbed()) {
+                renderInline(embed(op, appearance), op.getAttributes());
+                return;
+            }
+            String text = op.getText();
+            int start = 0;
+            int end;
+            while ((end = text.indexOf('\n', start)) >= 0) {
+                if (end > start) {
+                    renderText(text.substring(start, end), op);
+                }
+                endLine(op.getAttributes());
+                start = end + 1;
+            }
+            if (start < text.length()) {
+                renderText(text.substring(start), op);
+            }
+        }
+
+        String finish() {
+            if (line.length() > 0) {
+                endLine(Collections.<String, Object> emptyMap());
+            }
+            closeContainer();
+            return html.toString();
+        }
+
+        private void renderText(String text, Op op) {
+            if (op.isTab()) {
+                tabs++;
+            }
+            renderInline(escape(text, false), op.getAttributes());
+        }
+
+        private void renderInline(String content,
+                Map<String, Object> attributes) {
+            if (attributes.isEmpty()) {
+                line.append(content);
+                return;
+            }
+            String style = style(attributes);
+            String classes = fontClasses(attributes);
+            int innermost = -1;
+            for (int i = 0; i < INLINE_ORDER.size(); i++) {
+                if (attributes.get(INLINE_ORDER.get(i)) != null) {
+                    innermost = i;
+                }
+            }
+            StringBuilder close = new StringBuilder();
+            for (int i = 0; i <= innermost; i++) {
+                String format = INLINE_ORDER.get(i);
+                Object value = attributes.get(format);
+                if (value == null) {
+                    continue;
+                }
+                String tag = tag(format, value);
+                line.append('<').append(tag);
+                if (i == innermost) {
+                    if ("readonly".equals(format)) {
+                        appendStyle(style, classes == null ? "ql-readonly"
+                                : "ql-readonly " + classes);
+                        line.append(" contenteditable=\"false\"");
+                    } else {
+                        appendFormatAttributes(format, value);
+                        appendStyle(style, classes);
+                    }
+                } else {
+                    appendFormatAttributes(format, value);
+                }
+                line.append('>');
+                close.insert(0, "</" + tag + ">");
+            }
+            if (innermost < 0 && (style != null || classes != null)) {
+                line.append("<span");
+                appendStyle(style, classes);
+                line.append('>');
+                close.append("</span>");
+            }
+            line.append(content).append(close);
+        }
+
+        private void appendFormatAttributes(String format, Object value) {
+            switch (format) {
+            case "readonly":
+                line.append(" class=\"ql-readonly\" contenteditable=\"false\"");
+                break;
+            case "tab":
+                line.append(" contenteditable=\"false\" level=\"")
+                        .append(escape(String.valueOf(value), true))
+                        .append('"');
+                break;
+            case "pre-tab":
+                line.append(" contenteditable=\"false\"");
+                break;
+            case "link":
+                line.append(" href=\"")
+                        .append(escape(String.valueOf(value), true))
+                        .append("\" rel=\"noopener noreferrer\" target=\"_blank\"");
+                break;
+            default:
+            }
+        }
+
+        private void appendStyle(String style, String classes) {
+            if (classes != null) {
+                line.append(" class=\"").append(classes).append('"');
+            }
+            if (style != null) {
+                line.append(" style=\"").append(escape(style, true))
+                        .append('"');
+            }
+        }
+
+        private void endLine(Map<String, Object> block) {
+            String content = line.length() == 0 ? "<br>" : line.toString();
+            Object list = block.get("list");
+            if (block.get("code-block") != null) {
+                openContainer("pre spellcheck=\"false\"");
+                html.append(line).append('\n');
+            } else if (list != null) {
+                String type = "ordered".equals(list) ? "ol"
+                        : "checked".equals(list) ? "ul data-checked=\"true\""
+                                : "unchecked".equals(list)
+                                        ? "ul data-checked=\"false\""
+                                        : "ul";
+                openContainer(type);
+                appendBlock("li", block, content);
+            } else {
+                closeContainer();
+                Object header = block.get("header");
+                String tag = header != null ? "h" + toInt(header)
+                        : block.get("blockquote") != null ? "blockquote"
+                                : block.get("tabs-cont") != null ? "tabs-cont"
+                                        : "p";
+                appendBlock(tag, block, content);
+            }
+            line.setLength(0);
+            tabs = 0;
+        }
+
+        private void appendBlock(String tag, Map<String, Object> block,
+                String content) {
+            html.append('<').append(tag);
+            if ("tabs-cont".equals(tag)) {
+                html.append(" tabs-count=\"").append(tabs).append('"');
+            }
+            StringBuilder classes = new StringBuilder();
+            if (block.get("indent") != null) {
+                classes.append("ql-indent-").append(toInt(block.get("indent")));
+            }
+            if (block.get("direction") != null) {
+                classes.append(classes.length() > 0 ? " " : "")
+                        .append("ql-direction-").append(block.get("direction"));
+            }
+            if (classes.length() > 0) {
+                html.append(" class=\"").append(escape(classes.toString(), true))
+                        .append('"');
+            }
+            if (block.get("align") != null) {
+                html.append(" style=\"text-align: ")
+                        .append(escape(String.valueOf(block.get("align")), true))
+                        .append('"');
+            }
+            html.append('>').append(content).append("</")
+                    .append(tag).append('>');
+        }
+
+        private void openContainer(String container) {
+            if (!container.equals(this.container)) {
+                closeContainer();
+                html.append('<').append(container).append('>');
+                this.container = container;
+            }
+        }
+
+        private void closeContainer() {
+            if (container != null) {
+                html.append("</").append(container.split(" ")[0]).append('>');
+                container = null;
+            }
+        }
+    }
+
+    private static String embed(Op op, PlaceholderAppearance appearance) {
+        JsonValue value = op.getEmbedValue();
+        switch (op.getEmbedType()) {
+        case "image":
+            return "<img src=\"" + escape(value.asString(), true) + "\">";
+        case "placeholder":
+            return placeholder(value, appearance);
+        default:
+            return "";
+        }
+    }
+
+    /**
+     * Renders a placeholder like its blot in the web component: the text,
+     * its part matching the alternative appearance pattern in a span of its
+     * own, which is all that is shown in the alternative appearance, and
+     * else the tags around it.
+     */
+    private static String placeholder(JsonValue value,
+            PlaceholderAppearance appearance) {
+        String content = "";
+        String style = null;
+        if (value.getType() == JsonType.OBJECT) {
+            JsonObject placeholder = (JsonObject) value;
+            String text = placeholder.hasKey("text")
+                    && placeholder.get("text").getType() == JsonType.STRING
+                            ? placeholder.getString("text")
+                            : "";
+            boolean alt = placeholder.hasKey("altAppearance")
+                    && placeholder.get("altAppearance")
+                            .getType() == JsonType.BOOLEAN
+                    && placeholder.getBoolean("altAppearance");
+            content = escape(text, false);
+            Matcher matcher = appearance.compiledAltPattern == null ? null
+                    : appearance.compiledAltPattern.matcher(text);
+            if (matcher != null && matcher.find()
+                    && matcher.end() > matcher.start()) {
+                JsonObject altFormat = format(placeholder, "altFormat");
+                String altStyle = altFormat == null ? null
+                        : placeholderStyle(altFormat);
+                String altText = "<span alt"
+                        + (altStyle != null
+                                ? " style=\"" + escape(altStyle, true) + "\""
+                                : "")
+                        + ">" + wrap(escape(matcher.group(), false), altFormat)
+                        + "</span>";
+                content = alt ? altText
+                        : escape(text.substring(0, matcher.start()), false)
+                                + altText + escape(
+                                        text.substring(matcher.end()), false);
+            }
+            if (!alt) {
+                content = escape(appearance.start, false) + content
+                        + escape(appearance.end, false);
+            }
+            JsonObject format = format(placeholder, "format");
+            if (format != null) {
+                style = placeholderStyle(format);
+                content = wrap(content, format);
+            }
+        }
+        return "<span class=\"ql-placeholder\" data-placeholder=\""
+                + escape(value.toJson(), true) + "\">\uFEFF"
+                + "<span contenteditable=\"false\""
+                + (style != null ? " style=\"" + escape(style, true) + "\""
+                        : "")
+                + ">" + content + "</span>\uFEFF</span>";
+    }
+
+    private static JsonObject format(JsonObject placeholder, String key) {
+        return placeholder.hasKey(key)
+                && placeholder.get(key).getType() == JsonType.OBJECT
+                        ? placeholder.getObject(key)
+                        : null;
+    }
+
+    /**
+     * Gets the inline style of placeholder formats, or {@code null} if
+     * there is none.
+     */
+    private static String placeholderStyle(JsonObject format) {
+        StringBuilder styles = new StringBuilder();
+        StringBuilder decorations = new StringBuilder();
+        for (String key : format.keys()) {
+            JsonValue attribute = format.get(key);
+            String css = placeholderStyle(key, attribute);
+            if (css != null) {
+                styles.append(styles.length() > 0 ? " " : "").append(css);
+            } else if (("underline".equals(key) || "strike".equals(key))
+                    && attribute.getType() == JsonType.BOOLEAN
+                    && attribute.asBoolean()) {
+                decorations.append(decorations.length() > 0 ? " " : "")
+                        .append("underline".equals(key) ? "underline"
+                                : "line-through");
+            }
+        }
+        if (decorations.length() > 0) {
+            styles.append(styles.length() > 0 ? " " : "")
+                    .append("text-decoration: ").append(decorations)
+                    .append(";");
+        }
+        return styles.length() > 0 ? styles.toString() : null;
+    }
+
+    /**
+     * Wraps content into the elements of placeholder formats.
+     */
+    private static String wrap(String content, JsonObject format) {
+        if (format == null) {
+            return content;
+        }
+        for (String key : format.keys()) {
+            JsonValue attribute = format.get(key);
+            if ("code".equals(key)) {
+                content = "<code>" + content + "</code>";
+            } else if ("link".equals(key)) {
+                content = "<a href=\"" + escape(attribute.asString(), true)
+                        + "\">" + content + "</a>";
+            } else if ("script".equals(key)) {
+                String tag = "super".equals(attribute.asString()) ? "sup"
+                        : "sub";
+                content = "<" + tag + ">" + content + "</" + tag + ">";
+            }
+        }
+        return content;
+    }
+
+    private static String placeholderStyle(String key, JsonValue value) {
+        switch (key) {
+        case "bold":
+            return "font-weight: " + (value.asBoolean() ? "bold" : "normal")
+                    + ";";
+        case "italic":
+            return "font-style: " + (value.asBoolean() ? "italic" : "normal")
+                    + ";";
+        case "font":
+            return cssValue("font-family", value);
+        case "color":
+            return cssValue("color", value);
+        case "background":
+            return cssValue("background-color", value);
+        default:
+            // other formats are no CSS properties, unknown ones are skipped
+            return null;
+        }
+    }
+
+    private static String cssValue(String property, JsonValue value) {
+        return value.getType() == JsonType.STRING
+                ? cssValue(property, value.asString())
+                : null;
+    }
+
+    /**
+     * Gets a CSS declaration, or {@code null} if the value could inject
+     * further declarations.
+     */
+    private static String cssValue(String property, Object value) {
+        if (!(value instanceof String)
+                || !CSS_VALUE.matcher((String) value).matches()) {
+            return null;
+        }
+        return property + ": " + value + ";";
+    }
+
+    private static String tag(String format, Object value) {
+        switch (format) {
+        case "readonly":
+            return "span";
+        case "code":
+            return "code";
+        case "link":
+            return "a";
+        case "script":
+            return "super".equals(value) ? "sup" : "sub";
+        case "bold":
+            return "strong";
+        case "italic":
+            return "em";
+        case "strike":
+            return "s";
+        case "underline":
+            return "u";
+        default:
+            return format;
+        }
+    }
+
+    private static String style(Map<String, Object> attributes) {
+        StringBuilder style = new StringBuilder();
+        String color = cssValue("color", attributes.get("color"));
+        if (color != null) {
+            style.append(color);
+        }
+        String background = cssValue("background-color",
+                attributes.get("background"));
+        if (background != null) {
+            style.append(style.length() > 0 ? " " : "").append(background);
+        }
+        return style.length() > 0 ? style.toString() : null;
+    }
+
+    private static String fontClasses(Map<String, Object> attributes) {
+        StringBuilder classes = new StringBuilder();
+        if (attributes.get("font") != null) {
+            classes.append("ql-font-").append(attributes.get("font"));
+        }
+        if (attributes.get("size") != null) {
+            classes.append(classes.length() > 0 ? " " : "").append("ql-size-")
+                    .append(attributes.get("size"));
+        }
+        return classes.length() > 0 ? escape(classes.toString(), true) : null;
+    }
+
+    private static int toInt(Object value) {
+        return value instanceof Number ? ((Number) value).intValue()
+                : Integer.parseInt(String.valueOf(value));
+    }
+
+    static String escape(String text, boolean attribute) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement;
+            if (c == '&') {
+                replacement = "&amp;";
+            } else if (c == '\u00A0') {
+                replacement = "&nbsp;";
+            } else if (c == '"' && attribute) {
+                replacement = "&quot;";
+            } else if ((c == '<' || c == '>') && !attribute) {
+                replacement = c == '<' ? "&lt;" : "&gt;";
+            } else {
+                if (escaped != null) {
+                    escaped.append(c);
+                }
+                continue;
+            }
+            if (escaped == null) {
+                escaped = new StringBuilder(text.length() + 16);
+                escaped.append(text, 0, i);
+            }
+            escaped.append(replacement);
+        }
+        return escaped == null ? text : escaped.toString();
+    }
+}
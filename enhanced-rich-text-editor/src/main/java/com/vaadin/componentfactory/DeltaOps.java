@@ -0,0 +1,429 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+
+/**
+ * For internal use only. Helpers for working with raw
+ * <a href="https://github.com/quilljs/delta">Delta</a> operation arrays, as
+ * they are sent by the client side Quill editor.
+ */
+final class DeltaOps {
+
+    static final String EMPTY_DOCUMENT = "[{\"insert\":\"\\n\"}]";
+
+    private DeltaOps() {
+    }
+
+    /**
+     * Parses an editor value into its operations. The empty value is treated
+     * as the empty Quill document, which consists of a single line break.
+     *
+     * @param value
+     *            the editor value, not {@code null}
+     * @return the operations of the value
+     */
+    static JsonArray parse(String value) {
+        return Json.instance().parse(value.isEmpty() ? EMPTY_DOCUMENT : value);
+    }
+
+    /**
+     * Converts operations back to an editor value, mapping the empty Quill
+     * document to the empty string like the client side does.
+     *
+     * @param ops
+     *            the operations
+     * @return the editor value
+     */
+    static String toValue(JsonArray ops) {
+        String value = ops.toJson();
+        return EMPTY_DOCUMENT.equals(value) ? "" : value;
+    }
+
+    /**
+     * Composes the given change into the base document, returning the
+     * operations of the resulting document. Follows the semantics of
+     * {@code Delta.compose} in quill-delta.
+     *
+     * @param base
+     *            the operations of the base document
+     * @param change
+     *            the change to apply
+     * @return the composed operations
+     */
+    static JsonArray compose(JsonArray base, JsonArray change) {
+        OpIterator baseIter = new OpIterator(base);
+        OpIterator changeIter = new OpIterator(change);
+        JsonArray result = Json.createArray();
+
+        while (baseIter.hasNext() || changeIter.hasNext()) {
+            if ("insert".equals(changeIter.peekType())) {
+                push(result, changeIter.next(Integer.MAX_VALUE));
+            } else if ("delete".equals(baseIter.peekType())) {
+                push(result, baseIter.next(Integer.MAX_VALUE));
+            } else {
+                int length = Math.min(baseIter.peekLength(),
+                        changeIter.peekLength());
+                JsonObject baseOp = baseIter.next(length);
+                JsonObject changeOp = changeIter.next(length);
+                if (changeOp.hasKey("retain")) {
+                    JsonObject op = Json.createObject();
+                    boolean baseRetain = baseOp.hasKey("retain");
+                    if (baseRetain) {
+                        op.put("retain", length);
+                    } else {
+                        op.put("insert", baseOp.<JsonValue> get("insert"));
+                    }
+                    JsonObject attributes = composeAttributes(
+                            attributes(baseOp), attributes(changeOp),
+                            baseRetain);
+                    if (attributes != null) {
+                        op.put("attributes", attributes);
+                    }
+                    push(result, op);
+                } else if (changeOp.hasKey("delete")
+                        && baseOp.hasKey("retain")) {
+                    push(result, changeOp);
+                }
+                // else: an insert of the base deleted by the change
+            }
+        }
+        return chop(result);
+    }
+
+    /**
+     * Computes a change transforming the document {@code from} into the
+     * document {@code to}. Both documents must consist of inserts only. The
+     * change retains the common start and end of both documents and replaces
+     * the differing range in between, so its size depends on the size of
+     * the modification, not on the size of the documents.
+     *
+     * @param from
+     *            the operations of the original document
+     * @param to
+     *            the operations of the target document
+     * @return the change, empty if the documents are equal
+     */
+    static JsonArray diff(JsonArray from, JsonArray to) {
+        int fromLength = documentLength(from);
+        int toLength = documentLength(to);
+        int prefix = commonLength(from, to, false,
+                Math.min(fromLength, toLength));
+        int suffix = commonLength(from, to, true,
+                Math.min(fromLength, toLength) - prefix);
+
+        JsonArray change = Json.createArray();
+        if (prefix > 0) {
+            JsonObject retain = Json.createObject();
+            retain.put("retain", prefix);
+            push(change, retain);
+        }
+        OpIterator toIter = new OpIterator(to);
+        toIter.skip(prefix);
+        int remaining = toLength - prefix - suffix;
+        while (remaining > 0) {
+            JsonObject op = toIter.next(remaining);
+            remaining -= length(op);
+            push(change, op);
+        }
+        if (fromLength - prefix - suffix > 0) {
+            JsonObject delete = Json.createObject();
+            delete.put("delete", fromLength - prefix - suffix);
+            push(change, delete);
+        }
+        return chop(change);
+    }
+
+    /**
+     * Computes a hash of the given value, matching the one calculated by the
+     * web component (32 bit FNV-1a over the UTF-16 code units).
+     *
+     * @param value
+     *            the value
+     * @return the hash
+     */
+    static int hash(String value) {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * Gets the length of a single operation, counting embeds as one.
+     *
+     * @param op
+     *            the operation
+     * @return the length of the operation
+     */
+    static int length(JsonObject op) {
+        if (op.hasKey("delete")) {
+            return (int) op.getNumber("delete");
+        }
+        if (op.hasKey("retain")) {
+            return (int) op.getNumber("retain");
+        }
+        JsonValue insert = op.get("insert");
+        return insert.getType() == JsonType.STRING ? insert.asString().length()
+                : 1;
+    }
+
+    private static int documentLength(JsonArray ops) {
+        int length = 0;
+        for (int i = 0; i < ops.length(); i++) {
+            length += length(ops.getObject(i));
+        }
+        return length;
+    }
+
+    /**
+     * Counts the equal content at the start, or at the end when
+     * {@code backwards}, of both documents, up to the given limit.
+     */
+    private static int commonLength(JsonArray a, JsonArray b,
+            boolean backwards, int limit) {
+        int common = 0;
+        int indexA = backwards ? a.length() - 1 : 0;
+        int indexB = backwards ? b.length() - 1 : 0;
+        int offsetA = 0;
+        int offsetB = 0;
+        int step = backwards ? -1 : 1;
+        while (common < limit && indexA >= 0 && indexA < a.length()
+                && indexB >= 0 && indexB < b.length()) {
+            JsonObject opA = a.getObject(indexA);
+            JsonObject opB = b.getObject(indexB);
+            if (!sameAttributes(attributes(opA), attributes(opB))) {
+                break;
+            }
+            if (isTextInsert(opA) && isTextInsert(opB)) {
+                String textA = opA.getString("insert");
+                String textB = opB.getString("insert");
+                while (common < limit && offsetA < textA.length()
+                        && offsetB < textB.length()
+                        && charAt(textA, offsetA, backwards) == charAt(textB,
+                                offsetB, backwards)) {
+                    offsetA++;
+                    offsetB++;
+                    common++;
+                }
+                boolean endA = offsetA == textA.length();
+                boolean endB = offsetB == textB.length();
+                if (!endA && !endB) {
+                    break;
+                }
+                if (endA) {
+                    indexA += step;
+                    offsetA = 0;
+                }
+                if (endB) {
+                    indexB += step;
+                    offsetB = 0;
+                }
+            } else if (!isTextInsert(opA) && !isTextInsert(opB)
+                    && opA.get("insert").toJson()
+                            .equals(opB.get("insert").toJson())) {
+                common++;
+                indexA += step;
+                indexB += step;
+            } else {
+                break;
+            }
+        }
+        return common;
+    }
+
+    private static char charAt(String text, int offset, boolean backwards) {
+        return text.charAt(backwards ? text.length() - 1 - offset : offset);
+    }
+
+    private static JsonObject attributes(JsonObject op) {
+        return op.hasKey("attributes")
+                && op.get("attributes").getType() == JsonType.OBJECT
+                        ? op.getObject("attributes")
+                        : null;
+    }
+
+    private static JsonObject composeAttributes(JsonObject base,
+            JsonObject change, boolean keepNull) {
+        JsonObject result = Json.createObject();
+        if (change != null) {
+            for (String key : change.keys()) {
+                JsonValue value = change.get(key);
+                if (keepNull || value.getType() != JsonType.NULL) {
+                    result.put(key, value);
+                }
+            }
+        }
+        if (base != null) {
+            for (String key : base.keys()) {
+                if (change == null || !change.hasKey(key)) {
+                    result.put(key, base.<JsonValue> get(key));
+                }
+            }
+        }
+        return result.keys().length > 0 ? result : null;
+    }
+
+    private static void push(JsonArray ops, JsonObject op) {
+        if (length(op) <= 0 && !op.hasKey("insert")) {
+            return;
+        }
+        int index = ops.length();
+        if (index > 0) {
+            JsonObject last = ops.getObject(index - 1);
+            if (op.hasKey("delete") && last.hasKey("delete")) {
+                last.put("delete", length(last) + length(op));
+                return;
+            }
+            // inserts always go before deletes, like quill-delta does
+            if (last.hasKey("delete") && op.hasKey("insert")) {
+                index--;
+                if (index == 0) {
+                    insertAt(ops, 0, op);
+                    return;
+                }
+                last = ops.getObject(index - 1);
+            }
+            if (sameAttributes(attributes(op), attributes(last))) {
+                if (isTextInsert(op) && isTextInsert(last)) {
+                    last.put("insert", last.getString("insert")
+                            + op.getString("insert"));
+                    return;
+                }
+                if (op.hasKey("retain") && last.hasKey("retain")) {
+                    last.put("retain", length(last) + length(op));
+                    return;
+                }
+            }
+        }
+        insertAt(ops, index, op);
+    }
+
+    private static void insertAt(JsonArray ops, int index, JsonObject op) {
+        for (int i = ops.length(); i > index; i--) {
+            ops.set(i, ops.getObject(i - 1));
+        }
+        ops.set(index, op);
+    }
+
+    private static JsonArray chop(JsonArray ops) {
+        int length = ops.length();
+        if (length > 0) {
+            JsonObject last = ops.getObject(length - 1);
+            if (last.hasKey("retain") && attributes(last) == null) {
+                ops.remove(length - 1);
+            }
+        }
+        return ops;
+    }
+
+    private static boolean isTextInsert(JsonObject op) {
+        return op.hasKey("insert")
+                && op.get("insert").getType() == JsonType.STRING;
+    }
+
+    private static boolean sameAttributes(JsonObject a, JsonObject b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.jsEquals(b);
+    }
+
+    /**
+     * Walks over operations, allowing to take parts of them.
+     */
+    private static class OpIterator {
+        private final JsonArray ops;
+        private int index;
+        private int offset;
+
+        OpIterator(JsonArray ops) {
+            this.ops = ops;
+        }
+
+        boolean hasNext() {
+            return peekLength() < Integer.MAX_VALUE;
+        }
+
+        int peekLength() {
+            if (index < ops.length()) {
+                return length(ops.getObject(index)) - offset;
+            }
+            return Integer.MAX_VALUE;
+        }
+
+        String peekType() {
+            if (index < ops.length()) {
+                JsonObject op = ops.getObject(index);
+                if (op.hasKey("delete")) {
+                    return "delete";
+                }
+                return op.hasKey("retain") ? "retain" : "insert";
+            }
+            return "retain";
+        }
+
+        void skip(int length) {
+            while (length > 0 && hasNext()) {
+                length -= DeltaOps.length(next(length));
+            }
+        }
+
+        JsonObject next(int length) {
+            if (index >= ops.length()) {
+                JsonObject retain = Json.createObject();
+                retain.put("retain", Integer.MAX_VALUE);
+                return retain;
+            }
+            JsonObject op = ops.getObject(index);
+            int opLength = length(op);
+            int start = offset;
+            if (length >= opLength - start) {
+                length = opLength - start;
+                index++;
+                offset = 0;
+            } else {
+                offset += length;
+            }
+            if (start == 0 && length == opLength) {
+                return op;
+            }
+            JsonObject part = Json.createObject();
+            if (op.hasKey("delete")) {
+                part.put("delete", length);
+            } else if (op.hasKey("retain")) {
+                part.put("retain", length);
+            } else {
+                part.put("insert", op.getString("insert").substring(start,
+                        start + length));
+            }
+            JsonObject attributes = attributes(op);
+            if (attributes != null) {
+                part.put("attributes", attributes);
+            }
+            return part;
+        }
+    }
+}
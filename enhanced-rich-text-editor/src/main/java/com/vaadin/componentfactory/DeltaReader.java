@@ -0,0 +1,430 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import elemental.json.Json;
+
+/**
+ * Reads the operations of a <a href="https://github.com/quilljs/delta">Delta</a>
+ * one by one, without building a JSON tree of the whole document. Only the
+ * current operation is held in memory, which keeps the memory needed for
+ * walking a large editor value roughly constant.
+ * <p>
+ * An empty input is read as the empty document, which consists of a single
+ * line break. Malformed input results in an
+ * {@link IllegalArgumentException}.
+ */
+public final class DeltaReader implements Iterator<Op>, Closeable {
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final char[] buffer = new char[4096];
+    private int position;
+    private int limit;
+    private long offset;
+    private StringBuilder capture;
+
+    private final Map<Map<String, Object>, Map<String, Object>> interned = new HashMap<>();
+    private boolean started;
+    private boolean finished;
+    private Op next;
+
+    /**
+     * Creates a reader for the given editor value.
+     *
+     * @param value
+     *            the value in Delta format, not {@code null}
+     */
+    public DeltaReader(String value) {
+        this(new StringReader(Objects.requireNonNull(value,
+                "Value cannot be null")));
+    }
+
+    /**
+     * Creates a reader for a value in Delta format provided by the given
+     * character stream.
+     *
+     * @param reader
+     *            the character stream, not {@code null}
+     */
+    public DeltaReader(Reader reader) {
+        this.reader = Objects.requireNonNull(reader, "Reader cannot be null");
+    }
+
+    /**
+     * Passes all operations of the given editor value to the given visitor,
+     * in document order.
+     *
+     * @param value
+     *            the value in Delta format, not {@code null}
+     * @param visitor
+     *            the visitor to call for each operation, not {@code null}
+     */
+    public static void read(String value, Consumer<? super Op> visitor) {
+        new DeltaReader(value).forEachRemaining(visitor);
+    }
+
+    /**
+     * Passes all operations provided by the given character stream to the
+     * given visitor, in document order. The stream is not closed.
+     *
+     * @param reader
+     *            the character stream, not {@code null}
+     * @param visitor
+     *            the visitor to call for each operation, not {@code null}
+     */
+    public static void read(Reader reader, Consumer<? super Op> visitor) {
+        new DeltaReader(reader).forEachRemaining(visitor);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            next = readNext();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Op next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Op op = next;
+        next = null;
+        return op;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        reader.close();
+    }
+
+    private Op readNext() {
+        int c = peekToken();
+        if (!started) {
+            started = true;
+            if (c == EOF) {
+                finished = true;
+                return Op.insert("\n");
+            }
+            expect('[');
+            c = peekToken();
+            if (c == ']') {
+                read();
+                finished = true;
+                return null;
+            }
+        } else if (c == ',') {
+            read();
+            c = peekToken();
+        } else if (c == ']') {
+            read();
+            finished = true;
+            return null;
+        } else {
+            throw malformed("',' or ']'");
+        }
+        return readOp();
+    }
+
+    private Op readOp() {
+        expect('{');
+        Op.Type type = null;
+        String text = null;
+        String embedType = null;
+        String embedJson = null;
+        int length = 0;
+        Map<String, Object> attributes = Collections.emptyMap();
+
+        if (peekToken() != '}') {
+            do {
+                String key = readKey();
+                switch (key) {
+                case "insert":
+                    type = Op.Type.INSERT;
+                    if (peekToken() == '"') {
+                        read();
+                        text = readString();
+                        length = text.length();
+                    } else {
+                        expect('{');
+                        embedType = readKey();
+                        embedJson = captureValue();
+                        while (peekToken() == ',') {
+                            read();
+                            readKey();
+                            skipValue();
+                        }
+                        expect('}');
+                        length = 1;
+                    }
+                    break;
+                case "retain":
+                case "delete":
+                    type = "retain".equals(key) ? Op.Type.RETAIN
+                            : Op.Type.DELETE;
+                    length = (int) Double.parseDouble(readLiteral());
+                    break;
+                case "attributes":
+                    attributes = readAttributes();
+                    break;
+                default:
+                    skipValue();
+                }
+            } while (nextMember());
+        }
+        expect('}');
+        if (type == null) {
+            throw malformed("an insert, retain or delete");
+        }
+        return new Op(type, text, 0, length, embedType, embedJson,
+                attributes);
+    }
+
+    private Map<String, Object> readAttributes() {
+        if (peekToken() == 'n') {
+            readLiteral();
+            return Collections.emptyMap();
+        }
+        expect('{');
+        if (peekToken() == '}') {
+            read();
+            return Collections.emptyMap();
+        }
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        do {
+            String key = readKey();
+            int c = peekToken();
+            if (c == '"') {
+                read();
+                attributes.put(key, readString());
+            } else if (c == '{' || c == '[') {
+                attributes.put(key, Json.instance().parse(captureValue()));
+            } else {
+                String literal = readLiteral();
+                switch (literal) {
+                case "true":
+                    attributes.put(key, Boolean.TRUE);
+                    break;
+                case "false":
+                    attributes.put(key, Boolean.FALSE);
+                    break;
+                case "null":
+                    attributes.put(key, null);
+                    break;
+                default:
+                    attributes.put(key, Double.parseDouble(literal));
+                }
+            }
+        } while (nextMember());
+        expect('}');
+        return interned.computeIfAbsent(attributes,
+                Collections::unmodifiableMap);
+    }
+
+    private boolean nextMember() {
+        if (peekToken() == ',') {
+            read();
+            return true;
+        }
+        return false;
+    }
+
+    private String readKey() {
+        expect('"');
+        String key = readString();
+        expect(':');
+        return key;
+    }
+
+    private String readString() {
+        StringBuilder builder = new StringBuilder();
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return builder.toString();
+            }
+            if (c == EOF) {
+                throw malformed("'\"'");
+            }
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw malformed("a hex digit");
+                        }
+                        code = code * 16 + digit;
+                    }
+                    builder.append((char) code);
+                    break;
+                case EOF:
+                    throw malformed("an escape sequence");
+                default:
+                    builder.append((char) c);
+                }
+            } else {
+                builder.append((char) c);
+            }
+        }
+    }
+
+    private String readLiteral() {
+        peekToken();
+        StringBuilder builder = new StringBuilder();
+        int c = peek();
+        while (c != EOF && c != ',' && c != '}' && c != ']'
+                && !Character.isWhitespace(c)) {
+            builder.append((char) read());
+            c = peek();
+        }
+        if (builder.length() == 0) {
+            throw malformed("a value");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Skips the next value, returning its raw JSON.
+     */
+    private String captureValue() {
+        peekToken();
+        capture = new StringBuilder();
+        try {
+            skipValue();
+            return capture.toString();
+        } finally {
+            capture = null;
+        }
+    }
+
+    private void skipValue() {
+        int c = peekToken();
+        if (c == '"') {
+            read();
+            readString();
+        } else if (c == '{' || c == '[') {
+            char close = c == '{' ? '}' : ']';
+            read();
+            if (peekToken() == close) {
+                read();
+                return;
+            }
+            do {
+                if (close == '}') {
+                    readKey();
+                }
+                skipValue();
+            } while (nextMember());
+            expect(close);
+        } else {
+            readLiteral();
+        }
+    }
+
+    private void expect(char expected) {
+        if (peekToken() != expected) {
+            throw malformed("'" + expected + "'");
+        }
+        read();
+    }
+
+    private IllegalArgumentException malformed(String expected) {
+        int c = peek();
+        return new IllegalArgumentException("Malformed delta: expected "
+                + expected + " at position " + offset + " but found "
+                + (c == EOF ? "end of input" : "'" + (char) c + "'"));
+    }
+
+    /**
+     * Skips whitespace and returns the next character without consuming it.
+     */
+    private int peekToken() {
+        int c = peek();
+        while (c != EOF && Character.isWhitespace(c)) {
+            read();
+            c = peek();
+        }
+        return c;
+    }
+
+    private int peek() {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position];
+    }
+
+    private int read() {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        char c = buffer[position++];
+        offset++;
+        if (capture != null) {
+            capture.append(c);
+        }
+        return c;
+    }
+
+    private boolean fill() {
+        try {
+            int read = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(read, 0);
+            return read > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+/**
+ * Collects programmatic edits of an {@link EnhancedRichTextEditor} and
+ * applies them at once. All edits are combined into a single
+ * <a href="https://github.com/quilljs/delta">Delta</a> change, which is
+ * applied to the value of the editor and sent to the browser in one call.
+ * <p>
+ * Positions are editor positions as returned by
+ * {@link EnhancedRichTextEditor#getTextLength()}, i.e. tabs and placeholders
+ * count as one. Each edit refers to the content as modified by the edits
+ * before it. Positions are validated against the length of the content, an
+ * {@link IllegalArgumentException} is thrown for invalid ranges.
+ * <p>
+ * Obtain a transaction with {@link EnhancedRichTextEditor#edit()}:
+ *
+ * <pre>
+ * editor.edit().insert(0, "Dear ").insertPlaceholder(5, name)
+ *         .format(0, 5, "bold", true).lockReadonly(0, 6).apply();
+ * </pre>
+ */
+public final class EditTransaction implements Serializable {
+
+    private final EnhancedRichTextEditor editor;
+    private final List<JsonArray> steps = new ArrayList<>();
+    private int length;
+    private boolean applied;
+
+    EditTransaction(EnhancedRichTextEditor editor) {
+        this.editor = editor;
+        length = editor.getTextLength();
+    }
+
+    /**
+     * Inserts text at the given position.
+     *
+     * @param position
+     *            the position, between 0 and {@link #getLength()}
+     * @param text
+     *            the text to insert, not {@code null}
+     * @return this transaction, for chaining
+     */
+    public EditTransaction insert(int position, String text) {
+        return insert(position, text, null);
+    }
+
+    /**
+     * Inserts formatted text at the given position.
+     *
+     * @param position
+     *            the position, between 0 and {@link #getLength()}
+     * @param text
+     *            the text to insert, not {@code null}
+     * @param formats
+     *            the formats of the text, like {@code bold}, or {@code null}
+     * @return this transaction, for chaining
+     */
+    public EditTransaction insert(int position, String text,
+            Map<String, Object> formats) {
+        Objects.requireNonNull(text, "Text can't be null");
+        checkRange(position, 0);
+        if (!text.isEmpty()) {
+            add(position, Op.insert(text, formats));
+            length += text.length();
+        }
+        return this;
+    }
+
+    /**
+     * Inserts a placeholder at the given position.
+     *
+     * @param position
+     *            the position, between 0 and {@link #getLength()}
+     * @param placeholder
+     *            the placeholder to insert, not {@code null}
+     * @return this transaction, for chaining
+     */
+    public EditTransaction insertPlaceholder(int position,
+            Placeholder placeholder) {
+        Objects.requireNonNull(placeholder, "Placeholder cannot be null");
+        checkRange(position, 0);
+        add(position,
+                Op.insertEmbed("placeholder", placeholder.toJson(), null));
+        length++;
+        return this;
+    }
+
+    /**
+     * Deletes the given range.
+     *
+     * @param position
+     *            the start of the range
+     * @param length
+     *            the length of the range
+     * @return this transaction, for chaining
+     */
+    public EditTransaction delete(int position, int length) {
+        checkRange(position, length);
+        if (length > 0) {
+            add(position, Op.delete(length));
+            this.length -= length;
+        }
+        return this;
+    }
+
+    /**
+     * Applies a format to the given range.
+     *
+     * @param position
+     *            the start of the range
+     * @param length
+     *            the length of the range
+     * @param format
+     *            the name of the format, like {@code bold}, not {@code null}
+     * @param value
+     *            the value of the format, or {@code null} to remove it
+     * @return this transaction, for chaining
+     */
+    public EditTransaction format(int position, int length, String format,
+            Object value) {
+        Objects.requireNonNull(format, "Format cannot be null");
+        checkRange(position, length);
+        if (length > 0) {
+            add(position, Op.retain(length,
+                    Collections.singletonMap(format, value)));
+        }
+        return this;
+    }
+
+    /**
+     * Protects the given range against editing by the user.
+     *
+     * @param position
+     *            the start of the range
+     * @param length
+     *            the length of the range
+     * @return this transaction, for chaining
+     */
+    public EditTransaction lockReadonly(int position, int length) {
+        return format(position, length, "readonly", true);
+    }
+
+    /**
+     * Removes the protection against editing by the user from the given
+     * range.
+     *
+     * @param position
+     *            the start of the range
+     * @param length
+     *            the length of the range
+     * @return this transaction, for chaining
+     */
+    public EditTransaction unlockReadonly(int position, int length) {
+        return format(position, length, "readonly", null);
+    }
+
+    /**
+     * Gets the length of the content with all edits of this transaction
+     * applied.
+     *
+     * @return the length of the content
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Applies all edits of this transaction to the editor. A transaction can
+     * only be applied once.
+     */
+    public void apply() {
+        if (applied) {
+            throw new IllegalStateException(
+                    "The transaction has already been applied");
+        }
+        applied = true;
+        if (!steps.isEmpty()) {
+            editor.applyChange(compose(0, steps.size()));
+        }
+    }
+
+    /**
+     * Composes the steps pairwise, so that each step takes part in a
+     * logarithmic number of compositions only.
+     */
+    private JsonArray compose(int from, int to) {
+        if (to - from == 1) {
+            return steps.get(from);
+        }
+        int middle = (from + to) >>> 1;
+        return DeltaOps.compose(compose(from, middle), compose(middle, to));
+    }
+
+    private void add(int position, Op op) {
+        JsonArray step = Json.createArray();
+        if (position > 0) {
+            step.set(0, Op.retain(position).toJson());
+        }
+        step.set(step.length(), op.toJson());
+        steps.add(step);
+    }
+
+    private void checkRange(int position, int length) {
+        if (applied) {
+            throw new IllegalStateException(
+                    "The transaction has already been applied");
+        }
+        if (position < 0 || length < 0 || position + length > this.length) {
+            throw new IllegalArgumentException("Range " + position + " - "
+                    + (position + length) + " is outside of the content 0 - "
+                    + this.length);
+        }
+    }
+}
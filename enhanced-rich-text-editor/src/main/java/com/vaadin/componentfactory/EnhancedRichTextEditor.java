@@ -24,21 +24,46 @@ import com.vaadin.flow.component.dependency.JsModule;
 import com.vaadin.flow.component.dependency.NpmPackage;
 import com.vaadin.flow.component.icon.Icon;
 import com.vaadin.flow.data.binder.Binder;
+import com.vaadin.flow.data.provider.DataProvider;
+import com.vaadin.flow.data.provider.Query;
 import com.vaadin.flow.data.value.HasValueChangeMode;
 import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.function.SerializableConsumer;
 import com.vaadin.flow.internal.JsonSerializer;
+import com.vaadin.flow.dom.DomEvent;
+import com.vaadin.flow.dom.DomListenerRegistration;
+import com.vaadin.flow.server.StreamReceiver;
+import com.vaadin.flow.server.StreamVariable;
+import com.vaadin.flow.shared.Registration;
+import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
 import elemental.json.impl.JreJsonArray;
 import elemental.json.impl.JreJsonFactory;
-import org.jsoup.safety.Safelist;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.ResourceBundle;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Server-side component for the {@code <vcf-enhanced-rich-text-editor>}
@@ -55,10 +80,61 @@ public class EnhancedRichTextEditor
         implements HasSize, HasValueChangeMode, InputNotifier, KeyNotifier,
         CompositionNotifier {
 
+    private static final int MAX_PENDING_UPLOADS = 16;
+    private static final int MAX_FETCHED_PLACEHOLDERS = 1000;
+
     private ValueChangeMode currentMode;
+    private int valueChangeTimeout = DEFAULT_CHANGE_TIMEOUT;
     private RichTextEditorI18n i18n;
     private Map<ToolbarButton, Boolean> toolbarButtonsVisibility;
+    private ToolbarConfig toolbarConfig = ToolbarConfig.DEFAULT;
+    private ToolbarConfig sentToolbarConfig;
+    private boolean toolbarConfigPending;
     private Collection<Placeholder> placeholders;
+    private Map<String, Placeholder> placeholderIndex;
+    private List<Placeholder> clientPlaceholders;
+    private DataProvider<Placeholder, String> placeholderDataProvider;
+    private PlaceholderCatalog placeholderCatalog;
+    private Registration catalogConnection;
+    private boolean deltaSync;
+    private boolean deferredActivation;
+    private boolean activated;
+    private int syncVersion;
+    private boolean resyncPending;
+    private boolean valuePropertyStale;
+    private String clientValue = "";
+    private DomListenerRegistration staleValueRegistration;
+    private JsonArray pendingChange;
+    private String hashedValue;
+    private int valueHash;
+    private String deltaValue;
+    private Delta delta;
+    private String htmlValueSource;
+    private DeltaHtmlRenderer.PlaceholderAppearance htmlValueAppearance;
+    private String htmlValue;
+    private HtmlValueSyncMode htmlValueSyncMode = HtmlValueSyncMode.ALWAYS;
+    private SanitizerPolicy sanitizerPolicy = SanitizerPolicy.DEFAULT;
+    private String sanitizedSource;
+    private String sanitized;
+    private String textContentSource;
+    private String plainText;
+    private int textLength;
+    private String readonlyRangesSource;
+    private List<TextRange> readonlyRanges;
+    private ImageStore imageStore;
+    private ImageProcessor imageProcessor;
+    private int maxImageSize = 10 * 1024 * 1024;
+    /**
+     * References of stored uploads, until the client resolves them. Uploads
+     * the client never resolves are dropped once there are too many.
+     */
+    private final Map<String, String> uploadedImages = new LinkedHashMap<String, String>() {
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<String, String> eldest) {
+            return size() > MAX_PENDING_UPLOADS;
+        }
+    };
 
     /**
      * Gets the internationalization object previously set for this component.
@@ -86,13 +162,11 @@ public class EnhancedRichTextEditor
         this.i18n = i18n;
         runBeforeClientResponse(ui -> {
             if (i18n == this.i18n) {
-                JsonObject i18nObject = (JsonObject) JsonSerializer
-                        .toJson(this.i18n);
-                for (String key : i18nObject.keys()) {
-                    ui.getPage().executeJs(
-                            "$0.set('i18n." + key + "', $1)", getElement(),
-                            i18nObject.get(key));
-                }
+                // a single assignment, keeping the client side defaults of
+                // the keys not known here
+                ui.getPage().executeJs(
+                        "$0.i18n = Object.assign({}, $0.i18n, $1)",
+                        getElement(), i18n.toJson());
             }
         });
     }
@@ -111,11 +185,55 @@ public class EnhancedRichTextEditor
     public void setToolbarButtonsVisibility(
             Map<ToolbarButton, Boolean> toolbarButtonsVisibility) {
         this.toolbarButtonsVisibility = toolbarButtonsVisibility;
+        setToolbarConfig(
+                toolbarConfig.withButtonsVisibility(toolbarButtonsVisibility));
+    }
+
+    /**
+     * Gets the configuration of the toolbar, including the changes made with
+     * {@link #setToolbarButtonsVisibility(Map)} and the shortcut methods.
+     *
+     * @return the toolbar configuration, never <code>null</code>
+     */
+    public ToolbarConfig getToolbarConfig() {
+        return toolbarConfig;
+    }
+
+    /**
+     * Sets the configuration of the toolbar. The configuration can be shared
+     * by any number of editors. All changes made during a round trip are
+     * sent together, as the difference to the configuration the browser
+     * already has.
+     *
+     * @param toolbarConfig
+     *            the toolbar configuration, not <code>null</code>
+     */
+    public void setToolbarConfig(ToolbarConfig toolbarConfig) {
+        Objects.requireNonNull(toolbarConfig,
+                "toolbarConfig cannot be null");
+        this.toolbarConfig = toolbarConfig;
+        scheduleToolbarConfigUpdate();
+    }
+
+    private void scheduleToolbarConfigUpdate() {
+        if (toolbarConfigPending) {
+            return;
+        }
+        toolbarConfigPending = true;
         runBeforeClientResponse(ui -> {
-            String str = toolbarButtonsVisibility.toString();
-            str = str.replaceAll("=", ":");
-            ui.getPage().executeJs("setToolbarButtons($0, $1)",
-                    getElement(), str);
+            toolbarConfigPending = false;
+            JsonObject payload;
+            if (sentToolbarConfig == null) {
+                payload = toolbarConfig == ToolbarConfig.DEFAULT ? null
+                        : toolbarConfig.toJson();
+            } else {
+                payload = toolbarConfig.diff(sentToolbarConfig);
+            }
+            sentToolbarConfig = toolbarConfig;
+            if (payload != null) {
+                ui.getPage().executeJs("$0._applyToolbarConfig($1)",
+                        getElement(), payload);
+            }
         });
     }
 
@@ -130,6 +248,60 @@ public class EnhancedRichTextEditor
     public EnhancedRichTextEditor() {
         super("", "", false);
         setValueChangeMode(ValueChangeMode.ON_CHANGE);
+        updatePlaceholderSelectionEvents();
+
+        getElement().addEventListener("value-delta", this::onValueDelta)
+                .addEventData("event.detail.version")
+                .addEventData("event.detail.delta")
+                .addEventData("event.detail.value");
+        getElement().addEventListener("value-base-mismatch",
+                event -> pushValue());
+        getElement().addPropertyChangeListener("tabStops",
+                "tab-stops-changed",
+                event -> onTabStopsChanged(event.isUserOriginated()));
+        getElement().addPropertyChangeListener("placeholders",
+                "placeholders-changed", event -> {
+                    clientPlaceholders = null;
+                    fireEvent(new PlaceholdersChangedEvent<>(this,
+                            event.isUserOriginated()));
+                });
+        getElement().addEventListener("editor-activated", event -> {
+            activated = true;
+            getElement().removeProperty("previewHtml");
+        });
+        addValueChangeListener(event -> updatePreview());
+        getElement().addPropertyChangeListener("value", event -> {
+            if (event.isUserOriginated()) {
+                valuePropertyStale = false;
+                clientValue = getElement().getProperty("value", "");
+            }
+        });
+        addAttachListener(event -> {
+            if (placeholderCatalog != null) {
+                catalogConnection = PlaceholderCatalogConnection
+                        .connect(event.getUI(), placeholderCatalog);
+            }
+            updatePreview();
+            if (sentToolbarConfig == null
+                    && toolbarConfig != ToolbarConfig.DEFAULT) {
+                scheduleToolbarConfigUpdate();
+            }
+            if (valuePropertyStale) {
+                // a re-attached client is initialized from the value
+                // property, which delta sync and sent changes have not kept
+                // up to date
+                getElement().setProperty("value", getValue());
+                valuePropertyStale = false;
+                updateSyncVersion();
+            }
+            clientValue = getValue();
+        });
+        addDetachListener(event -> {
+            disconnectPlaceholderCatalog();
+            // the toolbar of a re-attached client is configured anew
+            sentToolbarConfig = null;
+            activated = false;
+        });
     }
 
     /**
@@ -185,11 +357,95 @@ public class EnhancedRichTextEditor
         return currentMode;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The timing of {@link ValueChangeMode#EAGER}, {@link ValueChangeMode#LAZY}
+     * and {@link ValueChangeMode#TIMEOUT} is applied in the browser, where
+     * the content is serialized, so it applies to
+     * {@link #setDeltaSync(boolean) delta synchronization} as well. In the
+     * other modes, the content is serialized 200 ms after the last edit.
+     */
     @Override
     public void setValueChangeMode(ValueChangeMode valueChangeMode) {
         currentMode = valueChangeMode;
         setSynchronizedEvent(
                 ValueChangeMode.eventForMode(valueChangeMode, "value-changed"));
+        getElement().setProperty("valueChangeMode", valueChangeMode == null
+                ? null : valueChangeMode.name().toLowerCase(Locale.ROOT));
+        if (staleValueRegistration != null) {
+            staleValueRegistration.remove();
+            staleValueRegistration = null;
+        }
+        String event = ValueChangeMode.eventForMode(valueChangeMode,
+                "value-changed");
+        if (event != null) {
+            staleValueRegistration = getElement().addEventListener(event,
+                    e -> onStaleValueSync());
+        }
+    }
+
+    /**
+     * The client sends its value only if it differs from the value property.
+     * When the property is behind because changes were sent instead of the
+     * value, a client value equal to the property is therefore not sent,
+     * and no property change is fired for it, so it is taken over here.
+     */
+    private void onStaleValueSync() {
+        String value = getElement().getProperty("value", "");
+        if (!deltaSync && valuePropertyStale && !value.equals(clientValue)) {
+            valuePropertyStale = false;
+            clientValue = value;
+            setModelValue(value, true);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default value is {@link #DEFAULT_CHANGE_TIMEOUT}.
+     */
+    @Override
+    public void setValueChangeTimeout(int valueChangeTimeout) {
+        if (valueChangeTimeout < 0) {
+            throw new IllegalArgumentException(
+                    "Timeout cannot be negative");
+        }
+        this.valueChangeTimeout = valueChangeTimeout;
+        getElement().setProperty("valueChangeTimeout", valueChangeTimeout);
+    }
+
+    @Override
+    public int getValueChangeTimeout() {
+        return valueChangeTimeout;
+    }
+
+    /**
+     * Sets whether the interval of value synchronization adapts to the
+     * document. If enabled, the interval of the value change mode is
+     * lengthened as the document grows or its serialization in the browser
+     * takes longer, up to two seconds, so large documents are not serialized
+     * on every pause in typing. Default is {@code false}.
+     *
+     * @param adaptiveValueChangeTimeout
+     *            {@code true} to adapt the interval to the document,
+     *            {@code false} to use the interval of the value change mode
+     */
+    public void setAdaptiveValueChangeTimeout(
+            boolean adaptiveValueChangeTimeout) {
+        getElement().setProperty("adaptiveValueChangeTimeout",
+                adaptiveValueChangeTimeout);
+    }
+
+    /**
+     * Gets whether the interval of value synchronization adapts to the
+     * document.
+     *
+     * @return {@code true} if the interval adapts to the document
+     * @see #setAdaptiveValueChangeTimeout(boolean)
+     */
+    public boolean isAdaptiveValueChangeTimeout() {
+        return getElement().getProperty("adaptiveValueChangeTimeout", false);
     }
 
     /**
@@ -222,23 +478,704 @@ public class EnhancedRichTextEditor
     }
 
     /**
-     * Value of the editor presented as HTML string.
+     * Returns the current value of the text editor as typed {@link Delta}.
+     * The value is parsed lazily and the result is cached until the value
+     * changes.
+     *
+     * @return the current value as delta, not {@code null}
+     */
+    public Delta getDelta() {
+        String value = getValue();
+        if (delta == null || !value.equals(deltaValue)) {
+            delta = Delta.parse(value);
+            deltaValue = value;
+        }
+        return delta;
+    }
+
+    /**
+     * Sets the value of this editor from a typed {@link Delta}.
+     *
+     * @param delta
+     *            the new value, not {@code null}
+     * @see #setValue(String)
+     */
+    public void setDelta(Delta delta) {
+        Objects.requireNonNull(delta, "Delta cannot be null");
+        String value = delta.toValue();
+        setValue(value);
+        this.delta = delta;
+        deltaValue = value;
+    }
+
+    /**
+     * Returns an iterator over the operations of the current value. Unless
+     * the value has already been parsed by {@link #getDelta()}, the
+     * operations are read one at a time from the raw value, without parsing
+     * the whole document.
      *
-     * @return the sanitized {@code htmlValue} property from the webcomponent.
+     * @return an iterator over the operations of the current value
+     * @see DeltaReader
+     */
+    public Iterator<Op> iterateOps() {
+        String value = getValue();
+        if (delta != null && value.equals(deltaValue)) {
+            return delta.getOps().iterator();
+        }
+        return new DeltaReader(value);
+    }
+
+    /**
+     * Passes the operations of the current value to the given visitor, in
+     * document order.
+     *
+     * @param visitor
+     *            the visitor to call for each operation, not {@code null}
+     * @see #iterateOps()
+     */
+    public void forEachOp(Consumer<? super Op> visitor) {
+        Objects.requireNonNull(visitor, "Visitor cannot be null");
+        iterateOps().forEachRemaining(visitor);
+    }
+
+    /**
+     * Starts a transaction of programmatic edits, which are applied to the
+     * value at once and sent to the browser as a single change.
+     *
+     * @return a new transaction
+     * @see EditTransaction
+     */
+    public EditTransaction edit() {
+        return new EditTransaction(this);
+    }
+
+    /**
+     * Gets the ranges of the content that are protected against editing by
+     * the user. Adjacent readonly content is returned as one range. The
+     * ranges are computed from the value and cached until the value changes.
+     *
+     * @return an unmodifiable list of the readonly ranges, in document order
+     */
+    public List<TextRange> getReadonlyRanges() {
+        String value = getValue();
+        if (readonlyRanges != null && value.equals(readonlyRangesSource)) {
+            return readonlyRanges;
+        }
+        List<TextRange> ranges = new ArrayList<>();
+        int position = 0;
+        int start = -1;
+        for (Iterator<Op> ops = iterateOps(); ops.hasNext();) {
+            Op op = ops.next();
+            if (!op.isInsert()) {
+                continue;
+            }
+            if (op.isReadonly() && start < 0) {
+                start = position;
+            } else if (!op.isReadonly() && start >= 0) {
+                ranges.add(new TextRange(start, position - start));
+                start = -1;
+            }
+            position += op.getLength();
+        }
+        if (start >= 0) {
+            ranges.add(new TextRange(start, position - start));
+        }
+        readonlyRanges = Collections.unmodifiableList(ranges);
+        readonlyRangesSource = value;
+        return readonlyRanges;
+    }
+
+    /**
+     * Sets the ranges of the content that are protected against editing by
+     * the user. All other content is unlocked. The ranges are applied as a
+     * single change, see {@link #edit()}.
+     *
+     * @param ranges
+     *            the readonly ranges, not {@code null}
+     * @throws IllegalArgumentException
+     *             if a range is outside of the content
+     */
+    public void setReadonlyRanges(Collection<TextRange> ranges) {
+        Objects.requireNonNull(ranges, "Ranges cannot be null");
+        EditTransaction edit = edit();
+        for (TextRange range : getReadonlyRanges()) {
+            edit.unlockReadonly(range.getStart(), range.getLength());
+        }
+        for (TextRange range : ranges) {
+            edit.lockReadonly(range.getStart(), range.getLength());
+        }
+        edit.apply();
+    }
+
+    /**
+     * Applies the given change to the value. When attached, only the change
+     * is sent to the client instead of the full value.
+     */
+    void applyChange(JsonArray change) {
+        String newValue = DeltaOps.toValue(
+                DeltaOps.compose(DeltaOps.parse(getValue()), change));
+        pendingChange = change;
+        try {
+            setValue(newValue);
+        } finally {
+            pendingChange = null;
+        }
+    }
+
+    @Override
+    protected void setPresentationValue(String newPresentationValue) {
+        JsonArray change = null;
+        if (canSendChange()) {
+            change = pendingChange != null ? pendingChange
+                    : diff(clientValue, newPresentationValue);
+        }
+        if (change != null) {
+            // the client applies the change to the value it has, the value
+            // property is left behind until it is synchronized again
+            getElement().callJsFunction("_applyValueDelta", change,
+                    hash(clientValue));
+            clientValue = newPresentationValue;
+            valuePropertyStale = true;
+            return;
+        }
+        if (valuePropertyStale) {
+            // the property may already hold the new value, which would then
+            // not be sent
+            getElement().removeProperty("value");
+        }
+        super.setPresentationValue(newPresentationValue);
+        clientValue = newPresentationValue;
+        valuePropertyStale = false;
+        if (deltaSync) {
+            updateSyncVersion();
+        }
+    }
+
+    /**
+     * Hashes the given value like the client does, remembering the result
+     * for the last value instance. The client value is kept as the instance
+     * that was sent, so comparing the instances suffices and avoids a full
+     * comparison of the contents.
+     */
+    private int hash(String value) {
+        if (value != hashedValue) {
+            valueHash = DeltaOps.hash(value);
+            hashedValue = value;
+        }
+        return valueHash;
+    }
+
+    private boolean canSendChange() {
+        return !deltaSync && getElement().getNode().isAttached();
+    }
+
+    /**
+     * Computes the change from the value the client has to the new value,
+     * if sending it is cheaper than sending the new value.
+     */
+    private JsonArray diff(String clientValue, String newValue) {
+        if (clientValue.isEmpty() || newValue.isEmpty()) {
+            return null;
+        }
+        JsonArray change = DeltaOps.diff(DeltaOps.parse(clientValue),
+                DeltaOps.parse(newValue));
+        return change.toJson().length() * 2 < newValue.length() ? change
+                : null;
+    }
+
+    private void pushValue() {
+        // removing first makes sure the value is sent, even if the property
+        // already has it
+        getElement().removeProperty("value");
+        getElement().setProperty("value", getValue());
+        clientValue = getValue();
+        valuePropertyStale = false;
+    }
+
+    /**
+     * Sets whether user edits are synchronized incrementally. When enabled,
+     * the client sends only the
+     * <a href="https://github.com/quilljs/delta">Delta</a> changes made since
+     * the last synchronization, together with a version number, and the
+     * server composes them into its copy of the value. If the versions of
+     * the client and the server diverge, the client is asked to send the
+     * full value once to resynchronize.
+     * <p>
+     * This greatly reduces the upstream traffic for large documents. The
+     * default is {@code false}, which sends the full value on every change.
+     *
+     * @param deltaSync
+     *            {@code true} to synchronize changes incrementally,
+     *            {@code false} to synchronize the full value
+     */
+    public void setDeltaSync(boolean deltaSync) {
+        if (this.deltaSync == deltaSync) {
+            return;
+        }
+        this.deltaSync = deltaSync;
+        if (!deltaSync && valuePropertyStale) {
+            getElement().setProperty("value", getValue());
+            clientValue = getValue();
+            valuePropertyStale = false;
+        }
+        getElement().setProperty("deltaSync", deltaSync);
+        updateSyncVersion();
+    }
+
+    /**
+     * Gets whether user edits are synchronized incrementally.
+     *
+     * @return {@code true} if only changes are synchronized, {@code false}
+     *         if the full value is synchronized
+     * @see #setDeltaSync(boolean)
+     */
+    public boolean isDeltaSync() {
+        return deltaSync;
+    }
+
+    /**
+     * Sets whether the editor is activated only when it is used. Until the
+     * user focuses it, the browser shows static HTML of the value, rendered
+     * on the server, instead of booting the editor with its toolbar, rulers
+     * and dialogs. On focus the editor is activated, with the caret at the
+     * clicked position. This shortens the loading of forms with many
+     * editors, of which only a few are edited.
+     * <p>
+     * The mode must be set before the editor is attached. The default is
+     * {@code false}.
+     *
+     * @param deferredActivation
+     *            {@code true} to activate the editor on first focus,
+     *            {@code false} to activate it immediately
+     */
+    public void setDeferredActivation(boolean deferredActivation) {
+        this.deferredActivation = deferredActivation;
+        getElement().setProperty("deferredActivation", deferredActivation);
+        if (deferredActivation) {
+            updatePreview();
+        } else {
+            getElement().removeProperty("previewHtml");
+        }
+    }
+
+    /**
+     * Gets whether the editor is activated only when it is used.
+     *
+     * @return {@code true} if the editor is activated on first focus
+     * @see #setDeferredActivation(boolean)
+     */
+    public boolean isDeferredActivation() {
+        return deferredActivation;
+    }
+
+    /**
+     * Sets whether tabs are laid out incrementally. If enabled, only the
+     * lines touched by a change are laid out in the browser, and lines whose
+     * content and tab stops are unchanged are not measured again. If
+     * disabled, all tabs of the content are laid out on every change. Default
+     * is {@code true}.
+     *
+     * @param incrementalTabLayout
+     *            {@code true} to lay out only changed lines, {@code false} to
+     *            lay out all lines on every change
+     */
+    public void setIncrementalTabLayout(boolean incrementalTabLayout) {
+        getElement().setProperty("incrementalTabLayout", incrementalTabLayout);
+    }
+
+    /**
+     * Gets whether tabs are laid out incrementally.
+     *
+     * @return {@code true} if only changed lines are laid out
+     * @see #setIncrementalTabLayout(boolean)
+     */
+    public boolean isIncrementalTabLayout() {
+        return getElement().getProperty("incrementalTabLayout", true);
+    }
+
+    private void updatePreview() {
+        if (deferredActivation && !activated) {
+            String value = getValue();
+            getElement().setProperty("previewHtml", value.isEmpty() ? ""
+                    : RichTextRenderCache.INSTANCE.render(sanitizerPolicy,
+                            value));
+        }
+    }
+
+    private void updateSyncVersion() {
+        syncVersion++;
+        resyncPending = false;
+        getElement().setProperty("syncVersion", syncVersion);
+    }
+
+    private void onValueDelta(DomEvent event) {
+        if (!deltaSync) {
+            return;
+        }
+        JsonObject data = event.getEventData();
+        int version = (int) data.getNumber("event.detail.version");
+        JsonValue value = data.get("event.detail.value");
+
+        if (value != null && value.getType() == JsonType.STRING) {
+            // full resync, only the answer to the latest request counts
+            if (version == syncVersion) {
+                syncVersion++;
+                resyncPending = false;
+                setClientValue(value.asString());
+            }
+        } else if (resyncPending) {
+            // changes based on a diverged version, wait for the resync
+        } else if (version != syncVersion) {
+            resyncPending = true;
+            syncVersion++;
+            getElement().callJsFunction("_requestValueResync", syncVersion);
+        } else {
+            syncVersion++;
+            JsonArray change = data.getArray("event.detail.delta");
+            setClientValue(DeltaOps.toValue(
+                    DeltaOps.compose(DeltaOps.parse(getValue()), change)));
+        }
+    }
+
+    private void setClientValue(String value) {
+        valuePropertyStale = true;
+        clientValue = value;
+        setModelValue(value, true);
+    }
+
+    /**
+     * Value of the editor presented as HTML string. The HTML is rendered on
+     * the server from the current value by {@link DeltaHtmlRenderer}, so it
+     * is available for detached editors as well and does not depend on the
+     * synchronized {@code htmlValue} property. Placeholders are rendered
+     * with the {@code placeholderTags} and the
+     * {@link #setPlaceholderAltAppearancePattern(String) alternative
+     * appearance pattern} of the editor, like the web component shows them.
+     * The result is cached until the value or the placeholder appearance
+     * changes.
+     *
+     * @return the sanitized HTML of the current value
+     * @see #getHtmlValueString()
      */
     public String getHtmlValue() {
-        // Using basic whitelist and adding img tag with data protocol enabled.
-        return sanitize(getHtmlValueString());
+        String value = getValue();
+        DeltaHtmlRenderer.PlaceholderAppearance appearance = getPlaceholderAppearance();
+        if (htmlValue == null || !value.equals(htmlValueSource)
+                || !appearance.equals(htmlValueAppearance)) {
+            htmlValue = sanitize(
+                    DeltaHtmlRenderer.render(iterateOps(), appearance));
+            htmlValueSource = value;
+            htmlValueAppearance = appearance;
+        }
+        return htmlValue;
+    }
+
+    private DeltaHtmlRenderer.PlaceholderAppearance getPlaceholderAppearance() {
+        Serializable tags = getElement().getPropertyRaw("placeholderTags");
+        String pattern = getPlaceholderAltAppearancePattern();
+        if (!(tags instanceof JsonObject)) {
+            return pattern == null ? DeltaHtmlRenderer.PlaceholderAppearance.DEFAULT
+                    : new DeltaHtmlRenderer.PlaceholderAppearance("@", "",
+                            pattern);
+        }
+        JsonObject json = (JsonObject) tags;
+        return new DeltaHtmlRenderer.PlaceholderAppearance(
+                json.hasKey("start") ? json.get("start").asString() : "",
+                json.hasKey("end") ? json.get("end").asString() : "",
+                pattern);
+    }
+
+    /**
+     * Gets the HTML of the editor asynchronously. Depending on the
+     * {@link #setHtmlValueSyncMode(HtmlValueSyncMode) sync mode}, the HTML is
+     * <ul>
+     * <li>{@link HtmlValueSyncMode#ALWAYS}: taken from the synchronized
+     * {@code htmlValue} property,</li>
+     * <li>{@link HtmlValueSyncMode#ON_DEMAND}: requested from the browser
+     * with a single call,</li>
+     * <li>{@link HtmlValueSyncMode#NEVER}: rendered on the server.</li>
+     * </ul>
+     * If the HTML is not available from the browser, e.g. because the editor
+     * is not attached, it is rendered on the server like
+     * {@link #getHtmlValue()} does.
+     *
+     * @return a future completed with the sanitized HTML
+     */
+    public CompletableFuture<String> getHtmlValueAsync() {
+        if (htmlValueSyncMode == HtmlValueSyncMode.ON_DEMAND
+                && getElement().getNode().isAttached()) {
+            return getElement().executeJs("return this._getHtmlValue()")
+                    .toCompletableFuture(String.class)
+                    .thenApply(this::sanitize);
+        }
+        String html = htmlValueSyncMode == HtmlValueSyncMode.ALWAYS
+                ? getHtmlValueString()
+                : null;
+        return CompletableFuture.completedFuture(
+                html != null ? sanitize(html) : getHtmlValue());
+    }
+
+    /**
+     * Sets when the web component updates and synchronizes its
+     * {@code htmlValue} property. With {@link HtmlValueSyncMode#ON_DEMAND}
+     * and {@link HtmlValueSyncMode#NEVER}, the browser neither produces nor
+     * sends the HTML on changes, which saves the upstream traffic for it.
+     * The HTML is then available through {@link #getHtmlValue()} and
+     * {@link #getHtmlValueAsync()}.
+     * <p>
+     * The default is {@link HtmlValueSyncMode#ALWAYS}.
+     *
+     * @param htmlValueSyncMode
+     *            the sync mode, not {@code null}
+     */
+    public void setHtmlValueSyncMode(HtmlValueSyncMode htmlValueSyncMode) {
+        this.htmlValueSyncMode = Objects.requireNonNull(htmlValueSyncMode,
+                "HtmlValueSyncMode cannot be null");
+        getElement().setProperty("htmlValueSyncMode",
+                htmlValueSyncMode.getPropertyValue());
+    }
+
+    /**
+     * Gets when the web component synchronizes its {@code htmlValue}
+     * property.
+     *
+     * @return the sync mode
+     * @see #setHtmlValueSyncMode(HtmlValueSyncMode)
+     */
+    public HtmlValueSyncMode getHtmlValueSyncMode() {
+        return htmlValueSyncMode;
     }
 
     String sanitize(String html) {
-        return org.jsoup.Jsoup.clean(html,
-                org.jsoup.safety.Safelist.basic()
-                        .addTags("img", "h1", "h2", "h3", "s")
-                        .addAttributes("img", "align", "alt", "height", "src",
-                                "title", "width")
-                        .addAttributes(":all", "style")
-                        .addProtocols("img", "src", "data"));
+        if (!html.equals(sanitizedSource)) {
+            sanitized = sanitizerPolicy.sanitize(html);
+            sanitizedSource = html;
+        }
+        return sanitized;
+    }
+
+    /**
+     * Sets the policy used to sanitize the HTML returned by
+     * {@link #getHtmlValue()} and {@link #getHtmlValueAsync()}, and the
+     * preview shown before a deferred activation. The sanitized HTML is
+     * cached, so the policy is only applied when the HTML changes.
+     *
+     * @param sanitizerPolicy
+     *            the policy to use, not {@code null}
+     * @see SanitizerPolicy#DEFAULT
+     */
+    public void setSanitizerPolicy(SanitizerPolicy sanitizerPolicy) {
+        this.sanitizerPolicy = Objects.requireNonNull(sanitizerPolicy,
+                "SanitizerPolicy cannot be null");
+        sanitizedSource = null;
+        htmlValue = null;
+        updatePreview();
+    }
+
+    /**
+     * Gets the policy used to sanitize the HTML value.
+     *
+     * @return the sanitizer policy
+     */
+    public SanitizerPolicy getSanitizerPolicy() {
+        return sanitizerPolicy;
+    }
+
+    /**
+     * Sets the store for images uploaded by the user. By default, uploaded
+     * images are embedded into the value as data URLs, which makes the value
+     * grow by a third more than the size of the image. With a store, the
+     * image is uploaded to the server and stored there, and only a short
+     * reference is inserted into the value. Stored images are served by the
+     * application under {@link ImageStore#PATH}.
+     *
+     * @param imageStore
+     *            the store, or {@code null} to embed images into the value
+     * @see FileSystemImageStore
+     */
+    public void setImageStore(ImageStore imageStore) {
+        this.imageStore = imageStore;
+        uploadedImages.clear();
+        if (imageStore == null) {
+            getElement().removeAttribute("image-upload-target");
+            return;
+        }
+        getElement().setAttribute("image-upload-target", new StreamReceiver(
+                getElement().getNode(), "image-upload", new ImageUpload()));
+        ImageStore.register(imageStore);
+    }
+
+    /**
+     * Gets the store for images uploaded by the user.
+     *
+     * @return the store, or {@code null} if images are embedded into the
+     *         value
+     * @see #setImageStore(ImageStore)
+     */
+    public ImageStore getImageStore() {
+        return imageStore;
+    }
+
+    /**
+     * Sets the processor applied to images uploaded into the
+     * {@link #setImageStore(ImageStore) image store} before storing them, for
+     * example {@link ImageProcessor#downscale(int)} to limit the size of
+     * large screenshots and photos. By default, images are stored as
+     * uploaded.
+     *
+     * @param imageProcessor
+     *            the processor, or {@code null} to store images unchanged
+     */
+    public void setImageProcessor(ImageProcessor imageProcessor) {
+        this.imageProcessor = imageProcessor;
+    }
+
+    /**
+     * Gets the processor applied to uploaded images.
+     *
+     * @return the processor, or {@code null} if images are stored unchanged
+     * @see #setImageProcessor(ImageProcessor)
+     */
+    public ImageProcessor getImageProcessor() {
+        return imageProcessor;
+    }
+
+    /**
+     * Sets the maximum size of an image uploaded into the
+     * {@link #setImageStore(ImageStore) image store}. Larger uploads are
+     * rejected. The default is 10 MB.
+     *
+     * @param maxImageSize
+     *            the maximum size in bytes
+     */
+    public void setMaxImageSize(int maxImageSize) {
+        if (maxImageSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Maximum image size must be positive");
+        }
+        this.maxImageSize = maxImageSize;
+    }
+
+    /**
+     * Gets the maximum size of an uploaded image.
+     *
+     * @return the maximum size in bytes
+     * @see #setMaxImageSize(int)
+     */
+    public int getMaxImageSize() {
+        return maxImageSize;
+    }
+
+    /**
+     * Called by the client after an upload to get the reference of the
+     * stored image. The upload is identified by the file name the client
+     * gave it.
+     */
+    @ClientCallable
+    private String resolveImageUpload(String uploadId) {
+        return uploadedImages.remove(uploadId);
+    }
+
+    /**
+     * Receives uploaded images. The client uploads several images in
+     * parallel and the bytes are copied without holding the session lock,
+     * so each upload has its own buffer, known by its file name.
+     */
+    class ImageUpload implements StreamVariable {
+
+        private final Map<String, UploadBuffer> buffers = new HashMap<>();
+        private String startedFileName;
+
+        @Override
+        public OutputStream getOutputStream() {
+            // called right after streamingStarted, with the lock still held
+            UploadBuffer buffer = new UploadBuffer(maxImageSize);
+            buffers.put(startedFileName, buffer);
+            return buffer;
+        }
+
+        @Override
+        public boolean listenProgress() {
+            return false;
+        }
+
+        @Override
+        public void onProgress(StreamingProgressEvent event) {
+        }
+
+        @Override
+        public void streamingStarted(StreamingStartEvent event) {
+            startedFileName = event.getFileName();
+        }
+
+        @Override
+        public void streamingFinished(StreamingEndEvent event) {
+            UploadBuffer buffer = buffers.remove(event.getFileName());
+            if (buffer == null || imageStore == null) {
+                return;
+            }
+            try {
+                ImageData image = new ImageData(buffer.toByteArray(),
+                        event.getMimeType());
+                if (imageProcessor != null) {
+                    image = imageProcessor.process(image);
+                }
+                String id = imageStore.store(
+                        new ByteArrayInputStream(image.getData()),
+                        image.getMimeType());
+                uploadedImages.put(event.getFileName(),
+                        ImageStore.getReference(id));
+            } catch (IllegalArgumentException e) {
+                // unsupported type, the client is told by not getting a
+                // reference
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void streamingFailed(StreamingErrorEvent event) {
+            buffers.remove(event.getFileName());
+        }
+
+        @Override
+        public boolean isInterrupted() {
+            // too large uploads fail when writing to their buffer
+            return false;
+        }
+    }
+
+    /**
+     * Collects the bytes of one upload, failing the upload once it exceeds
+     * the maximum image size.
+     */
+    private static final class UploadBuffer extends OutputStream {
+
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private final int limit;
+
+        private UploadBuffer(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if ((long) data.size() + len > limit) {
+                throw new IOException(
+                        "The image exceeds the maximum size of " + limit
+                                + " bytes");
+            }
+            data.write(b, off, len);
+        }
+
+        private byte[] toByteArray() {
+            return data.toByteArray();
+        }
     }
 
     /**
@@ -249,6 +1186,8 @@ public class EnhancedRichTextEditor
      */
     public void setPlaceholders(Collection<Placeholder> placeholders) {
         Objects.requireNonNull(placeholders, "placeholders cannot be null");
+        setLazyPlaceholders(null);
+        setCatalogPlaceholders(null);
         JreJsonFactory factory = new JreJsonFactory();
         JsonArray jsonArray = new JreJsonArray(factory);
 
@@ -257,13 +1196,34 @@ public class EnhancedRichTextEditor
             jsonArray.set(index++, placeholder.toJson());
         }
 
+        Map<String, Placeholder> byId = new HashMap<>();
+        for (Placeholder placeholder : placeholders) {
+            // the first one wins, like the text based lookup before
+            byId.putIfAbsent(placeholder.getId(), placeholder);
+        }
+
         this.placeholders = placeholders;
+        this.placeholderIndex = byId;
         getElement().setPropertyJson("placeholders", jsonArray);
     }
 
+    /**
+     * Get the placeholders shown in the Placeholder drop down menu. The
+     * placeholders are parsed once per change of the {@code placeholders}
+     * property and then cached.
+     *
+     * @return A new collection of the placeholders
+     */
     @Synchronize(property = "placeholders", value = "placeholders-changed")
     public Collection<Placeholder> getPlaceholders() {
-        ArrayList<Placeholder> placeholders = new ArrayList<>();
+        if (clientPlaceholders == null) {
+            clientPlaceholders = parsePlaceholders();
+        }
+        return new ArrayList<>(clientPlaceholders);
+    }
+
+    private List<Placeholder> parsePlaceholders() {
+        List<Placeholder> placeholders = new ArrayList<>();
         JsonArray rawArray = (JsonArray) getElement()
                 .getPropertyRaw("placeholders");
 
@@ -284,6 +1244,149 @@ public class EnhancedRichTextEditor
         return placeholders;
     }
 
+    /**
+     * Set a data provider for the placeholders shown in the Placeholder drop
+     * down menu. Instead of sending all placeholders to the browser, the drop
+     * down menu fetches only the page being shown, filtered on the server.
+     * Use this for large catalogs of placeholders, for example with a shared
+     * {@link PlaceholderDataProvider}. The filter passed to the data provider
+     * is the text typed by the user.
+     * <p>
+     * Replaces placeholders set with {@link #setPlaceholders(Collection)}.
+     * Placeholders of events are resolved with
+     * {@link PlaceholderDataProvider#getPlaceholder(String)} for a
+     * {@link PlaceholderDataProvider}, or else among the most recently
+     * fetched placeholders, and by fetching them again with their text as
+     * filter.
+     *
+     * @param dataProvider
+     *            the data provider, not <code>null</code>
+     */
+    public void setPlaceholderDataProvider(
+            DataProvider<Placeholder, String> dataProvider) {
+        Objects.requireNonNull(dataProvider, "dataProvider cannot be null");
+        setCatalogPlaceholders(null);
+        setLazyPlaceholders(dataProvider);
+        this.placeholders = null;
+        this.placeholderIndex = new LinkedHashMap<String, Placeholder>(16,
+                0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, Placeholder> eldest) {
+                return size() > MAX_FETCHED_PLACEHOLDERS;
+            }
+        };
+        getElement().setPropertyJson("placeholders", new JreJsonArray(
+                new JreJsonFactory()));
+    }
+
+    /**
+     * Get the data provider set with
+     * {@link #setPlaceholderDataProvider(DataProvider)}.
+     *
+     * @return the data provider, or <code>null</code> if the placeholders
+     *         are sent to the browser at once
+     */
+    public DataProvider<Placeholder, String> getPlaceholderDataProvider() {
+        return placeholderDataProvider;
+    }
+
+    /**
+     * Set a catalog of placeholders shown in the Placeholder drop down menu.
+     * A catalog can be shared by any number of editors, for example all
+     * editors of the application. It is sent to each browser window only
+     * once, whatever the number of editors using it, and its changes are
+     * sent as they happen, as increments. Without server push the changes
+     * reach a browser window with its next round trip.
+     * <p>
+     * Replaces placeholders set with {@link #setPlaceholders(Collection)} or
+     * {@link #setPlaceholderDataProvider(DataProvider)}. Placeholders of
+     * events are resolved with
+     * {@link PlaceholderCatalog#getPlaceholder(String)}.
+     *
+     * @param catalog
+     *            the catalog, not <code>null</code>
+     */
+    public void setPlaceholderCatalog(PlaceholderCatalog catalog) {
+        Objects.requireNonNull(catalog, "catalog cannot be null");
+        setLazyPlaceholders(null);
+        setCatalogPlaceholders(catalog);
+        this.placeholders = null;
+        this.placeholderIndex = null;
+        getElement().setPropertyJson("placeholders", new JreJsonArray(
+                new JreJsonFactory()));
+    }
+
+    /**
+     * Get the catalog set with
+     * {@link #setPlaceholderCatalog(PlaceholderCatalog)}.
+     *
+     * @return the catalog, or <code>null</code> if the placeholders are not
+     *         taken from a catalog
+     */
+    public PlaceholderCatalog getPlaceholderCatalog() {
+        return placeholderCatalog;
+    }
+
+    private void setCatalogPlaceholders(PlaceholderCatalog catalog) {
+        if (catalog == placeholderCatalog) {
+            return;
+        }
+        disconnectPlaceholderCatalog();
+        placeholderCatalog = catalog;
+        getElement().setProperty("placeholderCatalog",
+                catalog == null ? null : catalog.getId());
+        if (catalog != null) {
+            getUI().ifPresent(ui -> catalogConnection = PlaceholderCatalogConnection
+                    .connect(ui, catalog));
+        }
+    }
+
+    private void disconnectPlaceholderCatalog() {
+        if (catalogConnection != null) {
+            catalogConnection.remove();
+            catalogConnection = null;
+        }
+    }
+
+    private void setLazyPlaceholders(
+            DataProvider<Placeholder, String> dataProvider) {
+        placeholderDataProvider = dataProvider;
+        getElement().setProperty("lazyPlaceholders", dataProvider != null);
+    }
+
+    /**
+     * Called by the Placeholder drop down menu to fetch a page of
+     * placeholders.
+     */
+    @ClientCallable
+    private JsonObject fetchPlaceholders(String filter, int offset,
+            int limit) {
+        JsonObject result = Json.createObject();
+        JsonArray items = Json.createArray();
+        if (placeholderDataProvider != null) {
+            String query = filter == null || filter.isEmpty() ? null
+                    : filter;
+            placeholderDataProvider
+                    .fetch(new Query<>(Math.max(0, offset),
+                            Math.max(0, Math.min(limit, 500)), null, null,
+                            query))
+                    .forEach(placeholder -> {
+                        if (!(placeholderDataProvider instanceof PlaceholderDataProvider)) {
+                            placeholderIndex.put(placeholder.getId(),
+                                    placeholder);
+                        }
+                        items.set(items.length(), placeholder.toJson());
+                    });
+            result.put("size",
+                    placeholderDataProvider.size(new Query<>(query)));
+        } else {
+            result.put("size", 0);
+        }
+        result.put("items", items);
+        return result;
+    }
+
     public void setPlaceholderAltAppearancePattern(String pattern) {
         getElement().setProperty("placeholderAltAppearancePattern", pattern);
     }
@@ -304,7 +1407,7 @@ public class EnhancedRichTextEditor
 
     /**
      * For internal use only. Return Placeholder from the master list matching
-     * the given Placeholder by getText.
+     * the given Placeholder by {@link Placeholder#getId()}.
      * 
      * @param placeholder
      *            The Placeholder to be searched.
@@ -312,20 +1415,94 @@ public class EnhancedRichTextEditor
      */
     protected Placeholder getPlaceholder(Placeholder placeholder) {
         Objects.requireNonNull(placeholder, "Placeholder cannot be null");
-        Objects.requireNonNull(placeholders,
+        Placeholder found = getPlaceholder(placeholder.getId());
+        if (found == null && placeholderDataProvider != null
+                && !(placeholderDataProvider instanceof PlaceholderDataProvider)
+                && placeholder.getText() != null) {
+            // fetched too long ago, look it up again the way it was found
+            found = placeholderDataProvider
+                    .fetch(new Query<>(0, 500, null, null,
+                            placeholder.getText()))
+                    .filter(p -> Objects.equals(p.getId(),
+                            placeholder.getId()))
+                    .findFirst().orElse(null);
+            if (found != null) {
+                placeholderIndex.put(found.getId(), found);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Return the Placeholder with the given id from the placeholders set with
+     * {@link #setPlaceholders(Collection)}, the data provider or the catalog.
+     *
+     * @param id
+     *            The id of the Placeholder, see {@link Placeholder#getId()}
+     * @return The Placeholder, or <code>null</code> if there is none with the
+     *         given id
+     */
+    public Placeholder getPlaceholder(String id) {
+        if (placeholderCatalog != null) {
+            return placeholderCatalog.getPlaceholder(id);
+        }
+        if (placeholderDataProvider instanceof PlaceholderDataProvider) {
+            return ((PlaceholderDataProvider) placeholderDataProvider)
+                    .getPlaceholder(id);
+        }
+        Objects.requireNonNull(placeholderIndex,
                 "getPlaceholder cannot be called before placeholders are set");
-        return placeholders.stream()
-                .filter(p -> p.getText().equals(placeholder.getText()))
-                .findFirst().orElse(null);
+        return placeholderIndex.get(id);
     }
 
     /**
-     * Return the length of the content stripped as text.
+     * Return the length of the content, counted in editor positions like the
+     * client side does: every character counts as one, and so do tabs,
+     * placeholders and other embeds. The trailing line break of the
+     * document is not counted. The length is computed from the value and
+     * cached until the value changes.
      * 
      * @return The length of the text content.
      */
     public int getTextLength() {
-        return org.jsoup.Jsoup.clean(getHtmlValueString(),Safelist.none()).length();    
+        updateTextContent();
+        return textLength;
+    }
+
+    /**
+     * Returns the content as plain text. Tabs are returned as {@code '\t'}
+     * and placeholders as their text, other embeds, like images, are left
+     * out. The trailing line break of the document is not included. The text
+     * is computed from the value and cached until the value changes.
+     *
+     * @return the plain text content
+     */
+    public String getPlainText() {
+        updateTextContent();
+        return plainText;
+    }
+
+    private void updateTextContent() {
+        String value = getValue();
+        if (plainText != null && value.equals(textContentSource)) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        int length = 0;
+        for (Iterator<Op> ops = iterateOps(); ops.hasNext();) {
+            Op op = ops.next();
+            if (!op.isInsert()) {
+                continue;
+            }
+            length += op.getLength();
+            op.appendPlainText(text);
+        }
+        if (text.length() > 0 && text.charAt(text.length() - 1) == '\n') {
+            text.setLength(text.length() - 1);
+        }
+        textLength = Math.max(length - 1, 0);
+        plainText = text.toString();
+        textContentSource = value;
     }
 
     /**
@@ -337,10 +1514,8 @@ public class EnhancedRichTextEditor
      */
     public void addText(String text, int position) {
         Objects.requireNonNull(text, "Text can't be null");
-        this.getHtmlValue();
         if (position >= 0 && position <= getTextLength()) {
-            getElement().executeJs("$0._editor.insertText($1,$2)", getElement(),
-                    position, text);
+            edit().insert(position, text).apply();
         }
     }
 
@@ -352,7 +1527,7 @@ public class EnhancedRichTextEditor
     public void addText(String text) {
         Objects.requireNonNull(text, "Text can't be null");
         getElement().executeJs(
-                "if ($0._editor.getSelection()) $0._editor.insertText($0._editor.getSelection().index,$1)",
+                "if ($0._editor && $0._editor.getSelection()) $0._editor.insertText($0._editor.getSelection().index,$1)",
                 getElement(), text);
     }
 
@@ -428,7 +1603,9 @@ public class EnhancedRichTextEditor
     }
     
     /**
-     * Adds a custom shortcut to a specific toolbar standard button.
+     * Adds a custom shortcut to a specific toolbar standard button. The
+     * shortcut becomes part of the {@link #getToolbarConfig() toolbar
+     * configuration}.
      * 
      * @param toolbarButton The toolbar button to add the shortcut to.
      * @param keyCode The key code for the new shortcut.
@@ -438,12 +1615,13 @@ public class EnhancedRichTextEditor
      */
     public void addStandardToolbarButtonShortcut(ToolbarButton toolbarButton, Number keyCode,
         Boolean shortKey, Boolean shiftKey, Boolean altKey) {
-      getElement().executeJs("$0.addStandardButtonBinding($1, $2, $3, $4, $5)", getElement(),
-          toolbarButton.getButtonName(), keyCode, shortKey, shiftKey, altKey);
+      setToolbarConfig(toolbarConfig.withShortcut(ToolbarConfig.Shortcut.forButton(
+          toolbarButton, keyCode.intValue(), shortKey, shiftKey, altKey)));
     }
     
     /**
-     * Adds a custom shortcut to focus the editor toolbar.
+     * Adds a custom shortcut to focus the editor toolbar. The shortcut
+     * becomes part of the {@link #getToolbarConfig() toolbar configuration}.
      * 
      * @param keyCode The key code for the new shortcut.
      * @param shortKey True if modifier ctrl is part of the shortcut.
@@ -452,8 +1630,8 @@ public class EnhancedRichTextEditor
      */
     public void addToobarFocusShortcut(Number keyCode, Boolean shortKey, Boolean shiftKey,
         Boolean altKey) {
-      getElement().executeJs("$0.addToolbarFocusBinding($1, $2, $3, $4)", getElement(), keyCode,
-          shortKey, shiftKey, altKey);
+      setToolbarConfig(toolbarConfig.withShortcut(ToolbarConfig.Shortcut
+          .forToolbarFocus(keyCode.intValue(), shortKey, shiftKey, altKey)));
     }
     
     /**
@@ -502,6 +1680,66 @@ public class EnhancedRichTextEditor
         private String placeholderAppearanceLabel2;
         private String placeholderDialogTitle;
         private String clean;
+        private boolean readOnly;
+        private transient volatile JsonObject json;
+
+        private static final Map<ResourceBundle, RichTextEditorI18n> BUNDLES = Collections
+                .synchronizedMap(new WeakHashMap<>());
+
+        /**
+         * Gets the read-only internationalization properties of a resource
+         * bundle, for example loaded per locale. The keys of the bundle are
+         * the property names, like {@code undo}; properties without key are
+         * not set. There is one instance per bundle, shared by all editors
+         * and serialized only once for the browser. Its setters throw an
+         * {@link UnsupportedOperationException}.
+         *
+         * @param bundle
+         *            the resource bundle, not <code>null</code>
+         * @return the read-only internationalization properties
+         */
+        public static RichTextEditorI18n fromResourceBundle(
+                ResourceBundle bundle) {
+            Objects.requireNonNull(bundle, "bundle cannot be null");
+            return BUNDLES.computeIfAbsent(bundle, key -> {
+                RichTextEditorI18n i18n = new RichTextEditorI18n();
+                for (Field field : RichTextEditorI18n.class
+                        .getDeclaredFields()) {
+                    if (field.getType() == String.class
+                            && key.containsKey(field.getName())) {
+                        try {
+                            field.set(i18n, key.getString(field.getName()));
+                        } catch (IllegalAccessException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                }
+                i18n.toJson();
+                i18n.readOnly = true;
+                return i18n;
+            });
+        }
+
+        /**
+         * Gets the properties as JSON, created once per change of the
+         * properties.
+         */
+        JsonObject toJson() {
+            JsonObject result = json;
+            if (result == null) {
+                result = (JsonObject) JsonSerializer.toJson(this);
+                json = result;
+            }
+            return result;
+        }
+
+        private void changed() {
+            if (readOnly) {
+                throw new UnsupportedOperationException(
+                        "The internationalization properties of a resource bundle are read-only");
+            }
+            json = null;
+        }
 
         /**
          * Gets the translated word for {@code undo}
@@ -520,6 +1758,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setUndo(String undo) {
+            changed();
             this.undo = undo;
             return this;
         }
@@ -541,6 +1780,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setRedo(String redo) {
+            changed();
             this.redo = redo;
             return this;
         }
@@ -562,6 +1802,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setBold(String bold) {
+            changed();
             this.bold = bold;
             return this;
         }
@@ -583,6 +1824,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setItalic(String italic) {
+            changed();
             this.italic = italic;
             return this;
         }
@@ -604,6 +1846,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setUnderline(String underline) {
+            changed();
             this.underline = underline;
             return this;
         }
@@ -625,6 +1868,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setStrike(String strike) {
+            changed();
             this.strike = strike;
             return this;
         }
@@ -646,6 +1890,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setH1(String h1) {
+            changed();
             this.h1 = h1;
             return this;
         }
@@ -667,6 +1912,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setH2(String h2) {
+            changed();
             this.h2 = h2;
             return this;
         }
@@ -688,6 +1934,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setH3(String h3) {
+            changed();
             this.h3 = h3;
             return this;
         }
@@ -709,6 +1956,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setSubscript(String subscript) {
+            changed();
             this.subscript = subscript;
             return this;
         }
@@ -730,6 +1978,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setSuperscript(String superscript) {
+            changed();
             this.superscript = superscript;
             return this;
         }
@@ -751,6 +2000,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setListOrdered(String listOrdered) {
+            changed();
             this.listOrdered = listOrdered;
             return this;
         }
@@ -772,6 +2022,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setListBullet(String listBullet) {
+            changed();
             this.listBullet = listBullet;
             return this;
         }
@@ -793,6 +2044,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setDeindent(String deindent) {
+            changed();
             this.deindent = deindent;
             return this;
         }
@@ -814,6 +2066,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setIndent(String indent) {
+            changed();
             this.indent = indent;
             return this;
         }
@@ -835,6 +2088,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setAlignLeft(String alignLeft) {
+            changed();
             this.alignLeft = alignLeft;
             return this;
         }
@@ -856,6 +2110,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setAlignCenter(String alignCenter) {
+            changed();
             this.alignCenter = alignCenter;
             return this;
         }
@@ -877,6 +2132,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setAlignRight(String alignRight) {
+            changed();
             this.alignRight = alignRight;
             return this;
         }
@@ -898,6 +2154,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setAlignJustify(String alignJustify) {
+            changed();
             this.alignJustify = alignJustify;
             return this;
         }
@@ -920,6 +2177,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setImage(String image) {
+            changed();
             this.image = image;
             return this;
         }
@@ -941,6 +2199,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setLink(String link) {
+            changed();
             this.link = link;
             return this;
         }
@@ -962,6 +2221,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setBlockquote(String blockquote) {
+            changed();
             this.blockquote = blockquote;
             return this;
         }
@@ -983,6 +2243,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setCodeBlock(String codeBlock) {
+            changed();
             this.codeBlock = codeBlock;
             return this;
         }
@@ -1004,6 +2265,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setReadonly(String readonly) {
+            changed();
             this.readonly = readonly;
             return this;
         }
@@ -1025,6 +2287,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setPlaceholder(String placeholder) {
+            changed();
             this.placeholder = placeholder;
             return this;
         }
@@ -1047,6 +2310,7 @@ public class EnhancedRichTextEditor
          */
         public RichTextEditorI18n setPlaceholderAppeance(
                 String placeholderAppearance) {
+            changed();
             this.placeholderAppearance = placeholderAppearance;
             return this;
         }
@@ -1069,6 +2333,7 @@ public class EnhancedRichTextEditor
          */
         public RichTextEditorI18n setPlaceholderComboBoxLabel(
                 String placeholderComboBoxLabel) {
+            changed();
             this.placeholderComboBoxLabel = placeholderComboBoxLabel;
             return this;
         }
@@ -1091,6 +2356,7 @@ public class EnhancedRichTextEditor
          */
         public RichTextEditorI18n getPlaceholderAppearanceLabel1(
                 String placeholderAppearanceLabel1) {
+            changed();
             this.placeholderAppearanceLabel1 = placeholderAppearanceLabel1;
             return this;
         }
@@ -1113,6 +2379,7 @@ public class EnhancedRichTextEditor
          */
         public RichTextEditorI18n getPlaceholderAppearanceLabel2(
                 String placeholderAppearanceLabel2) {
+            changed();
             this.placeholderAppearanceLabel2 = placeholderAppearanceLabel2;
             return this;
         }
@@ -1135,6 +2402,7 @@ public class EnhancedRichTextEditor
          */
         public RichTextEditorI18n getPlaceholderDialogTitle(
                 String placeholderDialogTitle) {
+            changed();
             this.placeholderDialogTitle = placeholderDialogTitle;
             return this;
         }
@@ -1156,6 +2424,7 @@ public class EnhancedRichTextEditor
          * @return this instance for method chaining
          */
         public RichTextEditorI18n setClean(String clean) {
+            changed();
             this.clean = clean;
             return this;
         }
@@ -1206,4 +2475,32 @@ public class EnhancedRichTextEditor
         
     }
 
+    /**
+     * Defines when the web component updates and synchronizes its
+     * {@code htmlValue} property.
+     *
+     * @see EnhancedRichTextEditor#setHtmlValueSyncMode(HtmlValueSyncMode)
+     */
+    public enum HtmlValueSyncMode {
+        /**
+         * The HTML is never produced by the browser, it is rendered on the
+         * server when needed.
+         */
+        NEVER,
+        /**
+         * The HTML is produced by the browser only when requested with
+         * {@link EnhancedRichTextEditor#getHtmlValueAsync()}.
+         */
+        ON_DEMAND,
+        /**
+         * The HTML is produced by the browser and synchronized on every
+         * change.
+         */
+        ALWAYS;
+
+        String getPropertyValue() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
 }
@@ -0,0 +1,173 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * An {@link ImageStore} keeping images as files in a directory. Images are
+ * addressed by the SHA-256 hash of their content, so uploading the same image
+ * again stores it only once.
+ */
+public class FileSystemImageStore implements ImageStore {
+
+    private static final Map<String, String> EXTENSIONS = new HashMap<>();
+    private static final Map<String, String> MIME_TYPES = new HashMap<>();
+    private static final Pattern ID = Pattern.compile("[0-9a-f]{64}\\.[a-z]+");
+
+    static {
+        addType("image/png", "png");
+        addType("image/jpeg", "jpg");
+        addType("image/gif", "gif");
+        addType("image/bmp", "bmp");
+        addType("image/x-icon", "ico");
+        addType("image/webp", "webp");
+    }
+
+    private final String directory;
+
+    /**
+     * Creates a store keeping images in the given directory. The directory
+     * is created when the first image is stored.
+     *
+     * @param directory
+     *            the directory, not {@code null}
+     */
+    public FileSystemImageStore(Path directory) {
+        Objects.requireNonNull(directory, "Directory cannot be null");
+        // Path is not serializable
+        this.directory = directory.toAbsolutePath().toString();
+    }
+
+    private static void addType(String mimeType, String extension) {
+        EXTENSIONS.put(mimeType, extension);
+        MIME_TYPES.put(extension, mimeType);
+    }
+
+    /**
+     * Gets the directory the images are kept in.
+     *
+     * @return the directory
+     */
+    public Path getDirectory() {
+        return Paths.get(directory);
+    }
+
+    @Override
+    public String store(InputStream data, String mimeType) throws IOException {
+        Objects.requireNonNull(data, "Data cannot be null");
+        String extension = mimeType == null ? null
+                : EXTENSIONS.get(mimeType.toLowerCase(Locale.ENGLISH));
+        if (extension == null) {
+            throw new IllegalArgumentException(
+                    "Unsupported image type: " + mimeType);
+        }
+        Path dir = Files.createDirectories(getDirectory());
+        Path temp = Files.createTempFile(dir, "upload", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            try (OutputStream out = new DigestOutputStream(
+                    Files.newOutputStream(temp), digest)) {
+                data.transferTo(out);
+            }
+            String id = toHex(digest.digest()) + "." + extension;
+            Path target = dir.resolve(id);
+            if (!Files.exists(target)) {
+                move(temp, target);
+            }
+            return id;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream read(String id) throws IOException {
+        if (id == null || !ID.matcher(id).matches()) {
+            return null;
+        }
+        try {
+            return Files.newInputStream(getDirectory().resolve(id));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String getMimeType(String id) {
+        return MIME_TYPES.get(id.substring(id.lastIndexOf('.') + 1));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || o instanceof FileSystemImageStore
+                && directory.equals(((FileSystemImageStore) o).directory);
+    }
+
+    @Override
+    public int hashCode() {
+        return directory.hashCode();
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(source, target);
+            } catch (FileAlreadyExistsException alreadyStored) {
+                // stored concurrently, the content is the same
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -16,6 +16,7 @@
 package com.vaadin.componentfactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -57,9 +58,6 @@ import com.vaadin.flow.function.SerializableFunction;
 import com.vaadin.flow.shared.Registration;
 import elemental.json.JsonArray;
 import elemental.json.JsonObject;
-import elemental.json.impl.JreJsonArray;
-import elemental.json.impl.JreJsonFactory;
-import elemental.json.impl.JreJsonObject;
 
 /**
  * <p>
@@ -226,6 +224,8 @@ public abstract class GeneratedEnhancedRichTextEditor<R extends GeneratedEnhance
         extends AbstractSinglePropertyField<R, T> implements HasStyle, HasTheme,
         Focusable<GeneratedEnhancedRichTextEditor<R, T>> {
 
+    private List<TabStop> tabStops;
+
     /**
      * Adds theme variants to the component.
      *
@@ -251,31 +251,37 @@ public abstract class GeneratedEnhancedRichTextEditor<R extends GeneratedEnhance
     }
 
     public void setTabStops(List<TabStop> tabStops) {
-        JreJsonFactory factory = new JreJsonFactory();
-        JsonArray arrayTabStops = new JreJsonArray(factory);
-
-        int index = 0;
-        for (TabStop tab : tabStops) {
-            JsonObject obj = new JreJsonObject(factory);
-            obj.put("direction", tab.getDirection().name().toLowerCase());
-            obj.put("position", tab.getPosition());
+        getElement().setPropertyJson("tabStops", TabStop.toJson(tabStops));
+    }
 
-            arrayTabStops.set(index++, obj);
+    /**
+     * Returns the tab stops. The tab stops are parsed once per change of the
+     * {@code tabStops} property and then cached.
+     *
+     * @return a new list of the tab stops
+     */
+    @Synchronize(property = "tabStops", value = "tab-stops-changed")
+    public List<TabStop> getTabStops() {
+        if (tabStops == null) {
+            tabStops = parseTabStops();
         }
+        return new ArrayList<>(tabStops);
+    }
 
-        getElement().setPropertyJson("tabStops", arrayTabStops);
+    /**
+     * Called when the {@code tabStops} property changed, on the client or the
+     * server.
+     */
+    @SuppressWarnings("unchecked")
+    void onTabStopsChanged(boolean fromClient) {
+        tabStops = null;
+        fireEvent(new TabStopsChangedEvent<>((R) this, fromClient));
     }
 
-    @Synchronize(property = "tabStops", value = "tab-stops-changed")
-    public List<TabStop> getTabStops() {
+    private List<TabStop> parseTabStops() {
         List<TabStop> tabStops = new ArrayList<>();
         JsonArray rawArray = (JsonArray) getElement()
                 .getPropertyRaw("tabStops");
-                 
-        getElement().addPropertyChangeListener("tabStops", "tabStops-changed", e -> {});
-        getElement().addPropertyChangeListener("tabStops", "tab-stops-changed", e -> {});
-        getElement().addPropertyChangeListener("tabStops", "change", e -> {});
-        getElement().addPropertyChangeListener("tabStops", "value-changed", e -> {});
 
         if (rawArray == null) {
             return tabStops;
@@ -429,6 +435,40 @@ public abstract class GeneratedEnhancedRichTextEditor<R extends GeneratedEnhance
         getElement().setPropertyJson("i18n", i18n);
     }
 
+    /**
+     * Event fired when the tab stops changed, either by the user on the ruler
+     * or by {@link #setTabStops(List)}.
+     */
+    public static class TabStopsChangedEvent<R extends GeneratedEnhancedRichTextEditor<R, ?>>
+            extends ComponentEvent<R> {
+        public TabStopsChangedEvent(R source, boolean fromClient) {
+            super(source, fromClient);
+        }
+
+        /**
+         * Get the new tab stops.
+         *
+         * @return a list of the tab stops
+         */
+        public List<TabStop> getTabStops() {
+            return getSource().getTabStops();
+        }
+    }
+
+    /**
+     * Adds a listener for {@code TabStopsChangedEvent} events.
+     *
+     * @param listener
+     *            the listener
+     * @return a {@link Registration} for removing the event listener
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public Registration addTabStopsChangedListener(
+            ComponentEventListener<TabStopsChangedEvent<R>> listener) {
+        return addListener(TabStopsChangedEvent.class,
+                (ComponentEventListener) listener);
+    }
+
     @DomEvent("change")
     public static class ChangeEvent<R extends GeneratedEnhancedRichTextEditor<R, ?>>
             extends ComponentEvent<R> {
@@ -505,9 +545,13 @@ public abstract class GeneratedEnhancedRichTextEditor<R extends GeneratedEnhance
         }
 
         /**
-         * Get the Placeholder that was target of the event.
+         * Get the Placeholders that were target of the event. Placeholders
+         * with an index are copies carrying the index of this event, as the
+         * known placeholders may be shared, e.g. by a catalog. Placeholders
+         * that are no longer known, e.g. removed from the catalog, are
+         * returned as sent by the client.
          * 
-         * @return A Placeholder
+         * @return A list of Placeholders
          */
         public List<Placeholder> getPlaceholders() {
             if (source instanceof EnhancedRichTextEditor) {
@@ -515,7 +559,11 @@ public abstract class GeneratedEnhancedRichTextEditor<R extends GeneratedEnhance
                 for (Placeholder placeholder : placeholders) {
                     Placeholder actualPlaceholder = ((EnhancedRichTextEditor) source)
                             .getPlaceholder(placeholder);
-                    if (placeholder.getIndex() != -1) {
+                    if (actualPlaceholder == null) {
+                        actualPlaceholder = placeholder;
+                    } else if (placeholder.getIndex() != -1) {
+                        actualPlaceholder = new Placeholder(
+                                actualPlaceholder.toJson());
                         actualPlaceholder.setIndex(placeholder.getIndex());
                     }
                     actualPlaceholders.add(actualPlaceholder);
@@ -527,6 +575,44 @@ public abstract class GeneratedEnhancedRichTextEditor<R extends GeneratedEnhance
         }
     }
 
+    /**
+     * Event fired when the placeholders shown in the Placeholder drop down
+     * menu changed.
+     */
+    public static class PlaceholdersChangedEvent<R extends GeneratedEnhancedRichTextEditor<R, ?>>
+            extends ComponentEvent<R> {
+        public PlaceholdersChangedEvent(R source, boolean fromClient) {
+            super(source, fromClient);
+        }
+
+        /**
+         * Get the new placeholders.
+         *
+         * @return A collection of the placeholders
+         */
+        public Collection<Placeholder> getPlaceholders() {
+            if (source instanceof EnhancedRichTextEditor) {
+                return ((EnhancedRichTextEditor) source).getPlaceholders();
+            } else {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Adds a listener for {@code PlaceholdersChangedEvent} events.
+     *
+     * @param listener
+     *            the listener
+     * @return a {@link Registration} for removing the event listener
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public Registration addPlaceholdersChangedListener(
+            ComponentEventListener<PlaceholdersChangedEvent<R>> listener) {
+        return addListener(PlaceholdersChangedEvent.class,
+                (ComponentEventListener) listener);
+    }
+
     @DomEvent("placeholder-before-delete")
     public static class PlaceholderBeforeRemoveEvent<R extends GeneratedEnhancedRichTextEditor<R, ?>>
             extends AbstractMultiPlaceholderEvent<R> {
@@ -728,8 +814,9 @@ public abstract class GeneratedEnhancedRichTextEditor<R extends GeneratedEnhance
     @SuppressWarnings({ "rawtypes", "unchecked" })
     protected Registration addPlaceholderSelectedListener(
             ComponentEventListener<PlaceholderSelectedEvent<R>> listener) {
-        return addListener(PlaceholderSelectedEvent.class,
-                (ComponentEventListener) listener);
+        return trackPlaceholderSelectionListener(addListener(
+                PlaceholderSelectedEvent.class,
+                (ComponentEventListener) listener));
     }
 
     @DomEvent("placeholder-leave")
@@ -752,8 +839,29 @@ public abstract class GeneratedEnhancedRichTextEditor<R extends GeneratedEnhance
     @SuppressWarnings({ "rawtypes", "unchecked" })
     protected Registration addPlaceholderLeaveListener(
             ComponentEventListener<PlaceholderLeaveEvent<R>> listener) {
-        return addListener(PlaceholderLeaveEvent.class,
-                (ComponentEventListener) listener);
+        return trackPlaceholderSelectionListener(addListener(
+                PlaceholderLeaveEvent.class,
+                (ComponentEventListener) listener));
+    }
+
+    /**
+     * The webcomponent fires {@code placeholder-select} and
+     * {@code placeholder-leave} events only while there is a listener for
+     * one of them.
+     */
+    private Registration trackPlaceholderSelectionListener(
+            Registration registration) {
+        updatePlaceholderSelectionEvents();
+        return () -> {
+            registration.remove();
+            updatePlaceholderSelectionEvents();
+        };
+    }
+
+    void updatePlaceholderSelectionEvents() {
+        getElement().setProperty("placeholderSelectionEvents",
+                hasListener(PlaceholderSelectedEvent.class)
+                        || hasListener(PlaceholderLeaveEvent.class));
     }
 
     @DomEvent("placeholder-appearance-change")
@@ -894,7 +1002,7 @@ public abstract class GeneratedEnhancedRichTextEditor<R extends GeneratedEnhance
          */
         Element element = getElement();
         // Using $0 since "this" won't work inside the function
-        element.executeJs("setTimeout(function(){$0._editor.focus()},0)",
+        element.executeJs("setTimeout(function(){$0._focusEditor()},0)",
                 element);
     }
 }
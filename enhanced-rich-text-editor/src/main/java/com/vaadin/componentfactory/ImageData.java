@@ -0,0 +1,64 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The content of an image together with its MIME type.
+ *
+ * @see ImageProcessor
+ */
+public final class ImageData implements Serializable {
+
+    private final byte[] data;
+    private final String mimeType;
+
+    /**
+     * Creates image data. The array is not copied and must not be modified
+     * afterwards.
+     *
+     * @param data
+     *            the content of the image, not {@code null}
+     * @param mimeType
+     *            the MIME type of the image, like {@code image/png}
+     */
+    public ImageData(byte[] data, String mimeType) {
+        this.data = Objects.requireNonNull(data, "Data cannot be null");
+        this.mimeType = mimeType;
+    }
+
+    /**
+     * Gets the content of the image. The array must not be modified.
+     *
+     * @return the content
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Gets the MIME type of the image.
+     *
+     * @return the MIME type, like {@code image/png}
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+}
@@ -0,0 +1,63 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Processes images uploaded into an {@link EnhancedRichTextEditor} before
+ * they are put into its {@link ImageStore}.
+ *
+ * @see EnhancedRichTextEditor#setImageProcessor(ImageProcessor)
+ */
+@FunctionalInterface
+public interface ImageProcessor extends Serializable {
+
+    /**
+     * Processes the given image.
+     *
+     * @param image
+     *            the uploaded image, not {@code null}
+     * @return the image to store, may be the given image
+     * @throws IOException
+     *             if processing the image fails
+     */
+    ImageData process(ImageData image) throws IOException;
+
+    /**
+     * Creates a processor downscaling images whose width or height exceeds
+     * the given maximum, keeping their aspect ratio. Images are recompressed
+     * and their metadata, like EXIF data, is removed. JPEG images stay JPEG
+     * images, other images are converted to PNG.
+     * <p>
+     * Images that cannot be decoded, and GIF images, which might be
+     * animated, are stored unchanged.
+     *
+     * @param maxDimension
+     *            the maximum width and height in pixels
+     * @return the processor
+     */
+    static ImageProcessor downscale(int maxDimension) {
+        if (maxDimension <= 0) {
+            throw new IllegalArgumentException(
+                    "Maximum dimension must be positive");
+        }
+        return image -> ImageScaler.scale(image, maxDimension, maxDimension);
+    }
+}
@@ -0,0 +1,131 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import com.vaadin.flow.server.HttpStatusCode;
+import com.vaadin.flow.server.RequestHandler;
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinResponse;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * For internal use only. Serves the images of the registered
+ * {@link ImageStore}s under {@link ImageStore#PATH}, in all sessions of the
+ * application. One handler is added to each Vaadin service by
+ * {@link ImageServiceInitListener}. As the id of a
+ * stored image identifies its content, responses may be cached forever and
+ * the id is used as ETag. A {@code width} parameter requests a downscaled
+ * variant of the image, see {@link ImageVariantCache}.
+ */
+class ImageRequestHandler implements RequestHandler {
+
+    private static final String PATH_INFO = "/" + ImageStore.PATH;
+
+    /**
+     * The registered stores. Equal stores, like file system stores of the
+     * same directory, are registered once, so the set is bounded by the
+     * number of distinct stores of the application.
+     */
+    private static final Set<ImageStore> STORES = new CopyOnWriteArraySet<>();
+
+    /**
+     * Makes the images of the given store available in all sessions.
+     */
+    static void register(ImageStore store) {
+        STORES.add(store);
+    }
+
+    @Override
+    public boolean handleRequest(VaadinSession session, VaadinRequest request,
+            VaadinResponse response) throws IOException {
+        String pathInfo = request.getPathInfo();
+        if (pathInfo == null || !pathInfo.startsWith(PATH_INFO)) {
+            return false;
+        }
+        String id = pathInfo.substring(PATH_INFO.length());
+        int width = getVariantWidth(request);
+        String etag = '"' + id + (width > 0 ? "-w" + width : "") + '"';
+        for (ImageStore store : STORES) {
+            if (width > 0) {
+                ImageData variant = ImageVariantCache.INSTANCE.get(store, id,
+                        width);
+                if (variant != null) {
+                    try (InputStream in = new ByteArrayInputStream(
+                            variant.getData())) {
+                        send(request, response, etag, variant.getMimeType(),
+                                in);
+                    }
+                    return true;
+                }
+                continue;
+            }
+            InputStream in = store.read(id);
+            if (in != null) {
+                try (InputStream image = in) {
+                    send(request, response, etag, store.getMimeType(id),
+                            image);
+                }
+                return true;
+            }
+        }
+        response.sendError(HttpStatusCode.NOT_FOUND.getCode(),
+                "Image not found");
+        return true;
+    }
+
+    private static void send(VaadinRequest request, VaadinResponse response,
+            String etag, String mimeType, InputStream image)
+            throws IOException {
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control",
+                "public, max-age=31536000, immutable");
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpStatusCode.NOT_MODIFIED.getCode());
+            return;
+        }
+        response.setContentType(
+                mimeType != null ? mimeType : "application/octet-stream");
+        try (OutputStream out = response.getOutputStream()) {
+            image.transferTo(out);
+        }
+    }
+
+    /**
+     * Gets the width of the requested variant, or -1 for the original.
+     */
+    private static int getVariantWidth(VaadinRequest request) {
+        String width = request.getParameter("width");
+        if (width == null) {
+            return -1;
+        }
+        try {
+            int requested = Integer.parseInt(width);
+            return requested > 0 ? ImageVariantCache.variantWidth(requested)
+                    : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
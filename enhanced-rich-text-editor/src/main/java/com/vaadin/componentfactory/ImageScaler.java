@@ -0,0 +1,171 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * For internal use only. Scales and re-encodes images with the image I/O
+ * API. Re-encoding drops all metadata of the original image.
+ */
+final class ImageScaler {
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    /**
+     * The maximum number of pixels of an image to decode. A small file may
+     * declare a huge image, which would take gigabytes of memory to decode.
+     */
+    static final long MAX_PIXELS = 50_000_000L;
+
+    private ImageScaler() {
+    }
+
+    /**
+     * Scales the given image down to fit into the given bounds, and
+     * re-encodes it. Returns the given image if it cannot be decoded or is a
+     * GIF.
+     *
+     * @throws IllegalArgumentException
+     *             if the image has more than {@link #MAX_PIXELS} pixels
+     */
+    static ImageData scale(ImageData image, int maxWidth, int maxHeight)
+            throws IOException {
+        if ("image/gif".equals(image.getMimeType())) {
+            return image;
+        }
+        BufferedImage source = read(image.getData(), maxWidth, maxHeight);
+        if (source == null) {
+            return image;
+        }
+        boolean jpeg = "image/jpeg".equals(image.getMimeType());
+        double factor = Math.min(1, Math.min(
+                (double) maxWidth / source.getWidth(),
+                (double) maxHeight / source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int height = Math.max(1,
+                (int) Math.round(source.getHeight() * factor));
+        BufferedImage scaled = resize(source, width, height,
+                jpeg ? BufferedImage.TYPE_INT_RGB
+                        : BufferedImage.TYPE_INT_ARGB);
+        return jpeg ? new ImageData(writeJpeg(scaled), "image/jpeg")
+                : new ImageData(writePng(scaled), "image/png");
+    }
+
+    /**
+     * Decodes an image, after checking its dimensions. Images much larger
+     * than the bounds are decoded with subsampling, keeping twice the target
+     * size for smooth scaling.
+     *
+     * @return the decoded image, or {@code null} if it cannot be decoded
+     */
+    private static BufferedImage read(byte[] data, int maxWidth,
+            int maxHeight) throws IOException {
+        try (ImageInputStream in = ImageIO
+                .createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_PIXELS) {
+                    throw new IllegalArgumentException("Image of " + width
+                            + "x" + height + " pixels is too large");
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = (int) (Math.max(
+                        (double) width / maxWidth,
+                        (double) height / maxHeight) / 2);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0,
+                            0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width,
+            int height, int type) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        // halving step by step keeps bilinear scaling from dropping pixels
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+            BufferedImage next = new BufferedImage(currentWidth,
+                    currentHeight, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, currentWidth,
+                        currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    private static byte[] writePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] writeJpeg(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO
+                .getImageWritersByFormatName("jpeg");
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
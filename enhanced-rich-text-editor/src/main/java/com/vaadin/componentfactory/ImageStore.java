@@ -0,0 +1,133 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URLConnection;
+import java.util.Objects;
+
+/**
+ * Storage for images uploaded into an {@link EnhancedRichTextEditor}. Instead
+ * of embedding an uploaded image as data URL, the editor stores it here and
+ * inserts a short reference into its value. The image is then served by the
+ * application under that reference.
+ * <p>
+ * Implementations must be thread safe, as a single store is typically
+ * shared by all editors of an application.
+ *
+ * @see EnhancedRichTextEditor#setImageStore(ImageStore)
+ * @see FileSystemImageStore
+ */
+public interface ImageStore extends Serializable {
+
+    /**
+     * The path, relative to the application, under which stored images are
+     * served. The reference of a stored image is this path followed by its
+     * id.
+     */
+    String PATH = "vcf-images/";
+
+    /**
+     * Stores the given image. Storing identical content again should return
+     * the same id, without storing it twice.
+     *
+     * @param data
+     *            the content of the image, not {@code null}; the stream is
+     *            not closed
+     * @param mimeType
+     *            the MIME type of the image, like {@code image/png}
+     * @return the id of the stored image; may only consist of letters,
+     *         digits, dots and dashes, and should end with a file extension
+     *         matching the type of the image
+     * @throws IOException
+     *             if storing the image fails
+     * @throws IllegalArgumentException
+     *             if images of the given type are not supported
+     */
+    String store(InputStream data, String mimeType) throws IOException;
+
+    /**
+     * Opens a stored image for reading.
+     *
+     * @param id
+     *            the id of the image, as returned by
+     *            {@link #store(InputStream, String)}
+     * @return a stream of the content of the image, or {@code null} if there
+     *         is no image with the given id
+     * @throws IOException
+     *             if reading the image fails
+     */
+    InputStream read(String id) throws IOException;
+
+    /**
+     * Gets the MIME type of a stored image. By default, the type is derived
+     * from the extension of the id.
+     *
+     * @param id
+     *            the id of the image
+     * @return the MIME type, or {@code null} if unknown
+     */
+    default String getMimeType(String id) {
+        return URLConnection.guessContentTypeFromName(id);
+    }
+
+    /**
+     * Gets the reference to use for a stored image in the value of an
+     * editor.
+     *
+     * @param id
+     *            the id of the image
+     * @return the relative URL of the image
+     */
+    static String getReference(String id) {
+        return PATH + id;
+    }
+
+    /**
+     * Gets the reference to a downscaled variant of a stored image, for
+     * showing it at the given width. The width is rounded up to one of a few
+     * fixed steps; for large widths, the original image is served.
+     * Variants are rendered on demand and cached in memory.
+     *
+     * @param id
+     *            the id of the image
+     * @param width
+     *            the width the image is shown at, in pixels
+     * @return the relative URL of the variant
+     */
+    static String getReference(String id, int width) {
+        return getReference(id) + "?width=" + width;
+    }
+
+    /**
+     * Makes the images of the given store available under {@link #PATH} in
+     * all sessions of the application. A store is registered when it is set
+     * to an editor; register it at startup if stored images are shown
+     * before any editor uses the store, for example in a
+     * {@link RichTextView}. Equal stores are registered once.
+     *
+     * @param store
+     *            the store to serve, not {@code null}
+     */
+    static void register(ImageStore store) {
+        Objects.requireNonNull(store, "Store cannot be null");
+        ImageRequestHandler.register(store);
+    }
+}
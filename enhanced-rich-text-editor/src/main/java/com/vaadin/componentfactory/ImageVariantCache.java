@@ -0,0 +1,111 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * For internal use only. Renders downscaled variants of stored images and
+ * keeps the most recently used ones, up to a total size, in memory. Widths
+ * are rounded up to a few fixed steps, so arbitrary widths requested by
+ * clients cannot flood the cache.
+ */
+final class ImageVariantCache {
+
+    static final ImageVariantCache INSTANCE = new ImageVariantCache(
+            32 * 1024 * 1024);
+
+    private static final int[] WIDTHS = { 160, 320, 640, 1280, 2560 };
+
+    private final long maxSize;
+    private final Map<List<Object>, ImageData> variants = new LinkedHashMap<>(
+            16, 0.75f, true);
+    private long size;
+
+    ImageVariantCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Rounds the given width up to the next supported variant width.
+     *
+     * @return the variant width, or -1 if the width is larger than any
+     *         variant
+     */
+    static int variantWidth(int width) {
+        return Arrays.stream(WIDTHS).filter(step -> step >= width)
+                .findFirst().orElse(-1);
+    }
+
+    /**
+     * Gets the variant of a stored image with the given width, rendering it
+     * if it is not cached.
+     *
+     * @return the variant, the original if it is too large to scale, or
+     *         {@code null} if there is no such image
+     */
+    ImageData get(ImageStore store, String id, int width) throws IOException {
+        List<Object> key = Arrays.asList(store, id, width);
+        synchronized (variants) {
+            ImageData variant = variants.get(key);
+            if (variant != null) {
+                return variant;
+            }
+        }
+        ImageData original;
+        try (InputStream in = store.read(id)) {
+            if (in == null) {
+                return null;
+            }
+            original = new ImageData(in.readAllBytes(),
+                    store.getMimeType(id));
+        }
+        ImageData variant;
+        try {
+            variant = ImageScaler.scale(original, width, Integer.MAX_VALUE);
+        } catch (IllegalArgumentException e) {
+            // too large to decode, serve it as it is
+            return original;
+        }
+        put(key, variant);
+        return variant;
+    }
+
+    private void put(List<Object> key, ImageData variant) {
+        int variantSize = variant.getData().length;
+        if (variantSize > maxSize) {
+            return;
+        }
+        synchronized (variants) {
+            ImageData previous = variants.put(key, variant);
+            size += variantSize
+                    - (previous == null ? 0 : previous.getData().length);
+            Iterator<ImageData> eldest = variants.values().iterator();
+            while (size > maxSize) {
+                size -= eldest.next().getData().length;
+                eldest.remove();
+            }
+        }
+    }
+}
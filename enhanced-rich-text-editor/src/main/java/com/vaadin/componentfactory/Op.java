@@ -0,0 +1,400 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+
+/**
+ * A single, immutable operation of a {@link Delta}. An operation either
+ * inserts content, retains (and optionally formats) existing content or
+ * deletes content.
+ * <p>
+ * Inserted content is either text or an embed, like a {@code placeholder},
+ * an {@code image} or a {@code tabstop}. Inline formats, like {@code bold},
+ * {@code tab} or {@code readonly}, are stored in the attributes of the
+ * operation.
+ */
+public final class Op implements Serializable {
+
+    /**
+     * The type of an operation.
+     */
+    public enum Type {
+        INSERT, RETAIN, DELETE
+    }
+
+    private final Type type;
+    private final String buffer;
+    private final int start;
+    private final int length;
+    private final String embedType;
+    private final String embedJson;
+    private final Map<String, Object> attributes;
+
+    Op(Type type, String buffer, int start, int length, String embedType,
+            String embedJson, Map<String, Object> attributes) {
+        this.type = type;
+        this.buffer = buffer;
+        this.start = start;
+        this.length = length;
+        this.embedType = embedType;
+        this.embedJson = embedJson;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Creates an operation inserting the given text.
+     *
+     * @param text
+     *            the text to insert, not {@code null}
+     * @return the operation
+     */
+    public static Op insert(String text) {
+        return insert(text, null);
+    }
+
+    /**
+     * Creates an operation inserting the given text with the given formats.
+     *
+     * @param text
+     *            the text to insert, not {@code null}
+     * @param attributes
+     *            the formats of the text, or {@code null}
+     * @return the operation
+     */
+    public static Op insert(String text, Map<String, Object> attributes) {
+        Objects.requireNonNull(text, "Text cannot be null");
+        return new Op(Type.INSERT, text, 0, text.length(), null, null,
+                copy(attributes));
+    }
+
+    /**
+     * Creates an operation inserting an embed, e.g. {@code image} with the
+     * image source as value.
+     *
+     * @param embedType
+     *            the type of the embed, not {@code null}
+     * @param value
+     *            the value of the embed, not {@code null}
+     * @param attributes
+     *            the formats of the embed, or {@code null}
+     * @return the operation
+     */
+    public static Op insertEmbed(String embedType, JsonValue value,
+            Map<String, Object> attributes) {
+        Objects.requireNonNull(embedType, "Embed type cannot be null");
+        Objects.requireNonNull(value, "Embed value cannot be null");
+        return new Op(Type.INSERT, null, 0, 1, embedType, value.toJson(),
+                copy(attributes));
+    }
+
+    /**
+     * Creates an operation keeping the given amount of content.
+     *
+     * @param length
+     *            the length to retain
+     * @return the operation
+     */
+    public static Op retain(int length) {
+        return retain(length, null);
+    }
+
+    /**
+     * Creates an operation applying the given formats to the given amount of
+     * content. A {@code null} attribute value removes the format.
+     *
+     * @param length
+     *            the length to retain
+     * @param attributes
+     *            the formats to apply, or {@code null}
+     * @return the operation
+     */
+    public static Op retain(int length, Map<String, Object> attributes) {
+        return new Op(Type.RETAIN, null, 0, checkLength(length), null, null,
+                copy(attributes));
+    }
+
+    /**
+     * Creates an operation removing the given amount of content.
+     *
+     * @param length
+     *            the length to delete
+     * @return the operation
+     */
+    public static Op delete(int length) {
+        return new Op(Type.DELETE, null, 0, checkLength(length), null, null,
+                Collections.emptyMap());
+    }
+
+    /**
+     * Gets the type of this operation.
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets whether this operation inserts text or an embed.
+     *
+     * @return {@code true} for an insert, {@code false} otherwise
+     */
+    public boolean isInsert() {
+        return type == Type.INSERT;
+    }
+
+    /**
+     * Gets whether this operation inserts an embed instead of text.
+     *
+     * @return {@code true} for an embed insert, {@code false} otherwise
+     */
+    public boolean isEmbed() {
+        return embedType != null;
+    }
+
+    /**
+     * Gets the length of this operation. Embeds count as one.
+     *
+     * @return the length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Gets the inserted text.
+     *
+     * @return the text, or {@code null} if this is not a text insert
+     */
+    public String getText() {
+        if (type != Type.INSERT || embedType != null) {
+            return null;
+        }
+        return buffer.substring(start, start + length);
+    }
+
+    /**
+     * Gets the type of the inserted embed, e.g. {@code placeholder} or
+     * {@code image}.
+     *
+     * @return the embed type, or {@code null} if this is not an embed insert
+     */
+    public String getEmbedType() {
+        return embedType;
+    }
+
+    /**
+     * Gets the value of the inserted embed, e.g. the placeholder object or
+     * the image source.
+     *
+     * @return the embed value, or {@code null} if this is not an embed insert
+     */
+    public JsonValue getEmbedValue() {
+        return embedJson == null ? null : Json.instance().parse(embedJson);
+    }
+
+    /**
+     * Gets the formats of this operation.
+     *
+     * @return an unmodifiable map of the attributes, never {@code null}
+     */
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Gets the value of a single format.
+     *
+     * @param name
+     *            the attribute name
+     * @return the attribute value, or {@code null} if not set
+     */
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    /**
+     * Gets whether this operation inserts a tab.
+     *
+     * @return {@code true} for a tab, {@code false} otherwise
+     */
+    public boolean isTab() {
+        return isInsert() && attributes.get("tab") != null;
+    }
+
+    /**
+     * Gets whether the inserted content is protected against editing.
+     *
+     * @return {@code true} for readonly content, {@code false} otherwise
+     */
+    public boolean isReadonly() {
+        return isInsert() && Boolean.TRUE.equals(attributes.get("readonly"));
+    }
+
+    /**
+     * Converts this operation into its JSON representation.
+     *
+     * @return the operation as JSON object
+     */
+    public JsonObject toJson() {
+        JsonObject json = Json.createObject();
+        switch (type) {
+        case INSERT:
+            if (embedType != null) {
+                JsonObject embed = Json.createObject();
+                embed.put(embedType, getEmbedValue());
+                json.put("insert", embed);
+            } else {
+                json.put("insert", getText());
+            }
+            break;
+        case RETAIN:
+            json.put("retain", length);
+            break;
+        default:
+            json.put("delete", length);
+        }
+        if (!attributes.isEmpty()) {
+            JsonObject attrs = Json.createObject();
+            attributes.forEach((key, value) -> attrs.put(key, toJson(value)));
+            json.put("attributes", attrs);
+        }
+        return json;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Op)) {
+            return false;
+        }
+        Op other = (Op) o;
+        return type == other.type && length == other.length
+                && Objects.equals(getText(), other.getText())
+                && Objects.equals(embedType, other.embedType)
+                && Objects.equals(embedJson, other.embedJson)
+                && attributes.equals(other.attributes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, length, getText(), embedType, embedJson,
+                attributes);
+    }
+
+    @Override
+    public String toString() {
+        return toJson().toJson();
+    }
+
+    /**
+     * Appends the plain text of this insert to the given builder: tabs as
+     * one tab character each, placeholders as their text, other embeds are left out
+     * and so are the zero width characters used around tabs.
+     */
+    void appendPlainText(StringBuilder text) {
+        if (!isInsert()) {
+            return;
+        }
+        if (isTab()) {
+            // adjacent tabs are merged into one insert
+            for (int i = 0; i < length; i++) {
+                text.append('\t');
+            }
+        } else if (embedType != null) {
+            if ("placeholder".equals(embedType)) {
+                JsonValue placeholder = getEmbedValue();
+                if (placeholder.getType() == JsonType.OBJECT
+                        && ((JsonObject) placeholder).hasKey("text")) {
+                    text.append(((JsonObject) placeholder).getString("text"));
+                }
+            }
+        } else {
+            for (int i = start; i < start + length; i++) {
+                char c = buffer.charAt(i);
+                if (c != '\uFEFF') {
+                    text.append(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of this operation which shares the given attributes
+     * and, for a text insert, the given text buffer.
+     */
+    Op share(String buffer, int start, Map<String, Object> attributes) {
+        if (type != Type.INSERT || embedType != null) {
+            return new Op(type, null, 0, length, embedType, embedJson,
+                    attributes);
+        }
+        return new Op(type, buffer, start, length, null, null, attributes);
+    }
+
+    static Map<String, Object> intern(Map<String, Object> attributes,
+            Map<Map<String, Object>, Map<String, Object>> interned) {
+        if (attributes.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return interned.computeIfAbsent(attributes,
+                Collections::unmodifiableMap);
+    }
+
+    private static JsonValue toJson(Object value) {
+        if (value == null) {
+            return Json.createNull();
+        }
+        if (value instanceof Boolean) {
+            return Json.create((Boolean) value);
+        }
+        if (value instanceof Number) {
+            return Json.create(((Number) value).doubleValue());
+        }
+        if (value instanceof JsonValue) {
+            return (JsonValue) value;
+        }
+        return Json.create(value.toString());
+    }
+
+    private static Map<String, Object> copy(Map<String, Object> attributes) {
+        if (attributes == null || attributes.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+    }
+
+    private static int checkLength(int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException(
+                    "Length must be positive, was " + length);
+        }
+        return length;
+    }
+}
@@ -25,6 +25,7 @@ import elemental.json.impl.JreJsonFactory;
 import elemental.json.impl.JreJsonObject;
 
 public class Placeholder implements JsonSerializable {
+    private String id;
     private String text;
     private JsonObject format;
     private JsonObject altFormat;
@@ -46,6 +47,29 @@ public class Placeholder implements JsonSerializable {
         readJson(placeholder);
     }
 
+    /**
+     * Get the id of the placeholder, which identifies it in the placeholders
+     * of an editor. Unless set explicitly, the text of the placeholder is
+     * used as id.
+     *
+     * @return the id, or <code>null</code> if neither id nor text are set
+     */
+    public String getId() {
+        return id != null ? id : text;
+    }
+
+    /**
+     * Set a stable id for the placeholder. The id is stored with each
+     * occurrence of the placeholder in the editor value, so it keeps
+     * identifying the placeholder even if its text is changed.
+     *
+     * @param id
+     *            The id, or <code>null</code> to use the text as id
+     */
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getText() {
         return text;
     }
@@ -94,6 +118,9 @@ public class Placeholder implements JsonSerializable {
     public JsonObject toJson() {
         JreJsonFactory factory = new JreJsonFactory();
         JsonObject obj = new JreJsonObject(factory);
+        if (id != null) {
+            obj.put("id", id);
+        }
         obj.put("text", getText());
         obj.put("format", getFormat());
         obj.put("altFormat", getAltFormat());
@@ -102,6 +129,8 @@ public class Placeholder implements JsonSerializable {
 
     @Override
     public JsonSerializable readJson(JsonObject placeholder) {
+        this.id = placeholder.hasKey("id") ? placeholder.getString("id")
+                : null;
         this.text = placeholder.hasKey("text") ? placeholder.getString("text")
                 : null;
         this.format = placeholder.hasKey("format")
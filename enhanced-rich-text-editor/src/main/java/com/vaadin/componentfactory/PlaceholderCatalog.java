@@ -0,0 +1,407 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.vaadin.flow.function.SerializableConsumer;
+import com.vaadin.flow.shared.Registration;
+
+/**
+ * A catalog of placeholders shared by any number of editors, typically one
+ * per application. Editors using the catalog, see
+ * {@link EnhancedRichTextEditor#setPlaceholderCatalog(PlaceholderCatalog)},
+ * don't keep own copies of it. The catalog is sent to each browser window
+ * only once, however many editors it contains, and changes of the catalog
+ * are sent as they happen, as increments.
+ * <p>
+ * The catalog is thread safe. Reads work on an immutable snapshot without
+ * locking; every modification creates a new snapshot with a new version and
+ * notifies the change listeners. The placeholders are copied when added, so
+ * later modifications of the given instances do not affect the catalog.
+ * <p>
+ * A catalog is identified by its name. When a session is deserialized, e.g.
+ * after moving to another node of a cluster, its editors are connected to
+ * the catalog with the same name in that JVM, and only if there is none,
+ * the serialized content is used to create it. To share a catalog across a
+ * cluster, create it with the same name on every node.
+ */
+public class PlaceholderCatalog implements Serializable {
+
+    private static final Map<String, WeakReference<PlaceholderCatalog>> REGISTRY = new HashMap<>();
+
+    private final String name;
+    private volatile Snapshot snapshot = new Snapshot(0,
+            Collections.emptyMap());
+    private transient List<SerializableConsumer<ChangeEvent>> listeners;
+
+    /**
+     * Creates an empty catalog with a random name.
+     */
+    public PlaceholderCatalog() {
+        this(UUID.randomUUID().toString(), Collections.emptyList());
+    }
+
+    /**
+     * Creates a catalog with the given placeholders and a random name.
+     *
+     * @param placeholders
+     *            the placeholders, not {@code null}
+     */
+    public PlaceholderCatalog(Collection<Placeholder> placeholders) {
+        this(UUID.randomUUID().toString(), placeholders);
+    }
+
+    /**
+     * Creates a catalog with the given name and placeholders. The name must
+     * be unique in the application; a catalog created later replaces the
+     * one with the same name when sessions are deserialized.
+     *
+     * @param name
+     *            the name, not {@code null}
+     * @param placeholders
+     *            the placeholders, not {@code null}
+     */
+    public PlaceholderCatalog(String name,
+            Collection<Placeholder> placeholders) {
+        this.name = Objects.requireNonNull(name, "name cannot be null");
+        putAll(placeholders);
+        synchronized (REGISTRY) {
+            REGISTRY.values().removeIf(catalog -> catalog.get() == null);
+            REGISTRY.put(name, new WeakReference<>(this));
+        }
+    }
+
+    /**
+     * Gets the name of the catalog.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the version of the catalog, which is incremented by every
+     * modification.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    /**
+     * Gets the placeholders of the catalog, in the order they were added.
+     * The placeholders must not be modified.
+     *
+     * @return an unmodifiable snapshot of the placeholders
+     */
+    public Collection<Placeholder> getPlaceholders() {
+        return snapshot.placeholders.values();
+    }
+
+    /**
+     * Gets the placeholder with the given id.
+     *
+     * @param id
+     *            the id, see {@link Placeholder#getId()}
+     * @return the placeholder, or {@code null} if there is none with the
+     *         given id; it must not be modified
+     */
+    public Placeholder getPlaceholder(String id) {
+        return snapshot.placeholders.get(id);
+    }
+
+    /**
+     * Adds placeholders, or replaces placeholders with the same ids.
+     *
+     * @param placeholders
+     *            the placeholders, not {@code null}
+     */
+    public void put(Placeholder... placeholders) {
+        putAll(Arrays.asList(placeholders));
+    }
+
+    /**
+     * Adds placeholders, or replaces placeholders with the same ids.
+     *
+     * @param placeholders
+     *            the placeholders, not {@code null}
+     */
+    public void putAll(Collection<Placeholder> placeholders) {
+        Objects.requireNonNull(placeholders, "placeholders cannot be null");
+        modify(placeholders, Collections.emptyList(), false);
+    }
+
+    /**
+     * Removes the placeholders with the given ids.
+     *
+     * @param ids
+     *            the ids, see {@link Placeholder#getId()}
+     */
+    public void remove(String... ids) {
+        modify(Collections.emptyList(), Arrays.asList(ids), false);
+    }
+
+    /**
+     * Replaces the content of the catalog. Editors only receive the
+     * differences to the previous content.
+     *
+     * @param placeholders
+     *            the new placeholders, not {@code null}
+     */
+    public void replaceAll(Collection<Placeholder> placeholders) {
+        Objects.requireNonNull(placeholders, "placeholders cannot be null");
+        modify(placeholders, Collections.emptyList(), true);
+    }
+
+    /**
+     * Adds a listener notified after each modification of the catalog. The
+     * listener is called by the modifying thread, after the modification is
+     * published, so it should return quickly, e.g. by handing the event
+     * over to {@link com.vaadin.flow.component.UI#access}. Events of
+     * concurrent modifications may arrive in any order, see
+     * {@link ChangeEvent#getFromVersion()}.
+     *
+     * @param listener
+     *            the listener, not {@code null}
+     * @return a registration for removing the listener
+     */
+    public Registration addChangeListener(
+            SerializableConsumer<ChangeEvent> listener) {
+        Objects.requireNonNull(listener, "listener cannot be null");
+        getListeners().add(listener);
+        return () -> getListeners().remove(listener);
+    }
+
+    /**
+     * For internal use only. Gets the id identifying the catalog in the
+     * browser.
+     */
+    String getId() {
+        return name;
+    }
+
+    private synchronized List<SerializableConsumer<ChangeEvent>> getListeners() {
+        if (listeners == null) {
+            listeners = new CopyOnWriteArrayList<>();
+        }
+        return listeners;
+    }
+
+    private void modify(Collection<Placeholder> put,
+            Collection<String> remove, boolean replace) {
+        ChangeEvent event;
+        synchronized (this) {
+            event = publish(put, remove, replace);
+        }
+        if (event != null) {
+            getListeners().forEach(listener -> listener.accept(event));
+        }
+    }
+
+    /**
+     * Publishes the next snapshot, must be called while the catalog is
+     * locked.
+     *
+     * @return the changes, or {@code null} if nothing changed
+     */
+    private ChangeEvent publish(Collection<Placeholder> put,
+            Collection<String> remove, boolean replace) {
+        Snapshot current = snapshot;
+        Map<String, Placeholder> next = new LinkedHashMap<>(
+                current.placeholders);
+        List<Placeholder> added = new ArrayList<>();
+        List<Placeholder> changed = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        Map<String, Placeholder> kept = replace ? new LinkedHashMap<>()
+                : null;
+
+        for (Placeholder placeholder : put) {
+            Placeholder copy = new Placeholder(placeholder.toJson());
+            Placeholder previous = next.put(copy.getId(), copy);
+            if (kept != null) {
+                kept.put(copy.getId(), copy);
+            }
+            if (previous == null) {
+                added.add(copy);
+            } else if (!previous.toJson().toJson()
+                    .equals(copy.toJson().toJson())) {
+                changed.add(copy);
+            } else {
+                // unchanged, keep the instance handed out before
+                next.put(copy.getId(), previous);
+            }
+        }
+        for (String id : remove) {
+            if (next.remove(id) != null) {
+                removed.add(id);
+            }
+        }
+        if (kept != null) {
+            next.keySet().removeIf(id -> {
+                if (kept.containsKey(id)) {
+                    return false;
+                }
+                removed.add(id);
+                return true;
+            });
+        }
+        if (added.isEmpty() && changed.isEmpty() && removed.isEmpty()) {
+            return null;
+        }
+        snapshot = new Snapshot(current.version + 1,
+                Collections.unmodifiableMap(next));
+        return new ChangeEvent(this, current.version, current.version + 1,
+                added, changed, removed);
+    }
+
+    private Object writeReplace() {
+        return new SerializedCatalog(name, snapshot);
+    }
+
+    /**
+     * The serialized form of a catalog, resolved to the catalog with the
+     * same name in the deserializing JVM.
+     */
+    private static final class SerializedCatalog implements Serializable {
+        private final String name;
+        private final Snapshot snapshot;
+
+        private SerializedCatalog(String name, Snapshot snapshot) {
+            this.name = name;
+            this.snapshot = snapshot;
+        }
+
+        private Object readResolve() {
+            synchronized (REGISTRY) {
+                WeakReference<PlaceholderCatalog> registered = REGISTRY
+                        .get(name);
+                PlaceholderCatalog catalog = registered == null ? null
+                        : registered.get();
+                if (catalog == null) {
+                    catalog = new PlaceholderCatalog(name,
+                            Collections.emptyList());
+                    catalog.snapshot = snapshot;
+                }
+                return catalog;
+            }
+        }
+    }
+
+    private static final class Snapshot implements Serializable {
+        private final long version;
+        private final Map<String, Placeholder> placeholders;
+
+        private Snapshot(long version, Map<String, Placeholder> placeholders) {
+            this.version = version;
+            this.placeholders = placeholders;
+        }
+    }
+
+    /**
+     * The changes of one modification of a {@link PlaceholderCatalog}.
+     */
+    public static final class ChangeEvent implements Serializable {
+        private final PlaceholderCatalog catalog;
+        private final long fromVersion;
+        private final long toVersion;
+        private final List<Placeholder> added;
+        private final List<Placeholder> changed;
+        private final List<String> removedIds;
+
+        private ChangeEvent(PlaceholderCatalog catalog, long fromVersion,
+                long toVersion, List<Placeholder> added,
+                List<Placeholder> changed, List<String> removedIds) {
+            this.catalog = catalog;
+            this.fromVersion = fromVersion;
+            this.toVersion = toVersion;
+            this.added = Collections.unmodifiableList(added);
+            this.changed = Collections.unmodifiableList(changed);
+            this.removedIds = Collections.unmodifiableList(removedIds);
+        }
+
+        /**
+         * Gets the modified catalog.
+         *
+         * @return the catalog
+         */
+        public PlaceholderCatalog getCatalog() {
+            return catalog;
+        }
+
+        /**
+         * Gets the version of the catalog before the modification.
+         *
+         * @return the previous version
+         */
+        public long getFromVersion() {
+            return fromVersion;
+        }
+
+        /**
+         * Gets the version of the catalog after the modification.
+         *
+         * @return the new version
+         */
+        public long getToVersion() {
+            return toVersion;
+        }
+
+        /**
+         * Gets the placeholders with new ids.
+         *
+         * @return the added placeholders
+         */
+        public List<Placeholder> getAdded() {
+            return added;
+        }
+
+        /**
+         * Gets the placeholders which replaced different placeholders with
+         * the same ids.
+         *
+         * @return the changed placeholders
+         */
+        public List<Placeholder> getChanged() {
+            return changed;
+        }
+
+        /**
+         * Gets the ids of the removed placeholders.
+         *
+         * @return the removed ids
+         */
+        public List<String> getRemovedIds() {
+            return removedIds;
+        }
+    }
+}
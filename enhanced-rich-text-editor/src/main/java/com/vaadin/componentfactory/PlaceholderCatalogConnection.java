@@ -0,0 +1,162 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.shared.Registration;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+/**
+ * Keeps the copy of a {@link PlaceholderCatalog} in one browser window up to
+ * date. There is one connection per UI and catalog, shared by all editors of
+ * the UI using the catalog: the catalog is sent once when the first editor
+ * is attached, and then each change is sent once as an increment. The
+ * connection is closed when the last editor is detached.
+ */
+final class PlaceholderCatalogConnection implements Serializable {
+
+    private static final String CLIENT_CLASS = "window.Vaadin.VcfEnhancedRichTextEditor";
+
+    private final UI ui;
+    private final PlaceholderCatalog catalog;
+    private final String key;
+    private transient Registration catalogRegistration;
+    private boolean open;
+    private long sentVersion = -1;
+    private int editors;
+
+    private PlaceholderCatalogConnection(UI ui, PlaceholderCatalog catalog,
+            String key) {
+        this.ui = ui;
+        this.catalog = catalog;
+        this.key = key;
+    }
+
+    /**
+     * Connects an editor attached to the given UI to the catalog. Must be
+     * called while the session is locked.
+     *
+     * @return a registration for disconnecting the editor again
+     */
+    static Registration connect(UI ui, PlaceholderCatalog catalog) {
+        String key = PlaceholderCatalogConnection.class.getName() + "-"
+                + catalog.getId();
+        PlaceholderCatalogConnection connection = (PlaceholderCatalogConnection) ComponentUtil
+                .getData(ui, key);
+        if (connection == null) {
+            connection = new PlaceholderCatalogConnection(ui, catalog, key);
+            ComponentUtil.setData(ui, key, connection);
+            connection.open();
+        }
+        connection.editors++;
+        PlaceholderCatalogConnection connected = connection;
+        return connected::release;
+    }
+
+    private void open() {
+        listen();
+        sendAll();
+    }
+
+    private void listen() {
+        open = true;
+        catalogRegistration = catalog.addChangeListener(event -> {
+            try {
+                ui.access(() -> send(event));
+            } catch (UIDetachedException e) {
+                close();
+            }
+        });
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (open) {
+            // the catalog of this JVM does not know the listener, the
+            // browser catches up with the next change
+            listen();
+        }
+    }
+
+    private void release() {
+        if (--editors == 0) {
+            close();
+            ComponentUtil.setData(ui, key, null);
+        }
+    }
+
+    private void close() {
+        open = false;
+        if (catalogRegistration != null) {
+            catalogRegistration.remove();
+            catalogRegistration = null;
+        }
+    }
+
+    private void send(PlaceholderCatalog.ChangeEvent event) {
+        if (!open || event.getToVersion() <= sentVersion) {
+            // closed, or already contained in a full update
+            return;
+        }
+        if (event.getFromVersion() != sentVersion) {
+            sendAll();
+            return;
+        }
+        JsonArray upserts = Json.createArray();
+        event.getAdded().forEach(
+                placeholder -> upserts.set(upserts.length(), placeholder.toJson()));
+        event.getChanged().forEach(
+                placeholder -> upserts.set(upserts.length(), placeholder.toJson()));
+        JsonArray removedIds = Json.createArray();
+        event.getRemovedIds()
+                .forEach(id -> removedIds.set(removedIds.length(), id));
+        sentVersion = event.getToVersion();
+        ui.getPage().executeJs(CLIENT_CLASS
+                + "._applyPlaceholderCatalogChange($0, $1, $2, $3, $4)",
+                catalog.getId(), (double) event.getFromVersion(),
+                (double) event.getToVersion(), upserts, removedIds)
+                .then(Boolean.class, applied -> {
+                    if (!applied) {
+                        // the browser lost track, e.g. after a reload
+                        sendAll();
+                    }
+                });
+    }
+
+    private void sendAll() {
+        // read the version first: changes made meanwhile are sent again,
+        // which is harmless as applying them is idempotent
+        long version = catalog.getVersion();
+        JsonArray placeholders = Json.createArray();
+        catalog.getPlaceholders().forEach(placeholder -> placeholders
+                .set(placeholders.length(), placeholder.toJson()));
+        sentVersion = version;
+        ui.getPage().executeJs(
+                CLIENT_CLASS + "._setPlaceholderCatalog($0, $1, $2)",
+                catalog.getId(), (double) version, placeholders);
+    }
+}
@@ -0,0 +1,217 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.vaadin.flow.data.provider.AbstractBackEndDataProvider;
+import com.vaadin.flow.data.provider.Query;
+
+/**
+ * A data provider for a large, fixed catalog of placeholders, for use with
+ * {@link EnhancedRichTextEditor#setPlaceholderDataProvider}. The placeholders
+ * are kept in an index sorted by text. A filter matches placeholders whose
+ * text contains it, ignoring case; placeholders starting with the filter are
+ * found by binary search and listed first.
+ * <p>
+ * As the catalog is immutable, one instance can be shared by all editors of
+ * an application.
+ */
+public class PlaceholderDataProvider
+        extends AbstractBackEndDataProvider<Placeholder, String> {
+
+    private static final int MAX_CACHED_MATCHES = 64;
+
+    private final Placeholder[] placeholders;
+    private final String[] keys;
+    private final Map<String, Placeholder> byId = new HashMap<>();
+    /**
+     * The most recently used matches by filter, shared by all users typing
+     * into their editors.
+     */
+    private transient Map<String, Match> matches;
+
+    /**
+     * Creates a data provider for the given placeholders.
+     *
+     * @param placeholders
+     *            the placeholders, not {@code null}
+     */
+    public PlaceholderDataProvider(Collection<Placeholder> placeholders) {
+        Objects.requireNonNull(placeholders, "placeholders cannot be null");
+        this.placeholders = placeholders.toArray(new Placeholder[0]);
+        Arrays.sort(this.placeholders,
+                Comparator.comparing(PlaceholderDataProvider::key));
+        keys = Arrays.stream(this.placeholders)
+                .map(PlaceholderDataProvider::key).toArray(String[]::new);
+        for (Placeholder placeholder : this.placeholders) {
+            byId.putIfAbsent(placeholder.getId(), placeholder);
+        }
+    }
+
+    /**
+     * Returns the placeholder with the given id.
+     *
+     * @param id
+     *            the id, see {@link Placeholder#getId()}
+     * @return the placeholder, or {@code null} if there is none with the
+     *         given id
+     */
+    public Placeholder getPlaceholder(String id) {
+        return byId.get(id);
+    }
+
+    @Override
+    protected Stream<Placeholder> fetchFromBackEnd(
+            Query<Placeholder, String> query) {
+        Match match = match(query.getFilter().orElse(null));
+        return IntStream
+                .concat(Arrays.stream(match.prefix),
+                        Arrays.stream(match.infix))
+                .skip(query.getOffset()).limit(query.getLimit())
+                .mapToObj(i -> placeholders[i]);
+    }
+
+    @Override
+    protected int sizeInBackEnd(Query<Placeholder, String> query) {
+        Match match = match(query.getFilter().orElse(null));
+        return match.prefix.length + match.infix.length;
+    }
+
+    private Match match(String filter) {
+        String key = filter == null ? ""
+                : filter.toLowerCase(Locale.ROOT);
+        Match base = null;
+        synchronized (this) {
+            Match cached = matches().get(key);
+            if (cached != null) {
+                return cached;
+            }
+            for (Match match : matches().values()) {
+                if (!match.filter.isEmpty() && key.startsWith(match.filter)
+                        && (base == null || match.filter.length() > base.filter
+                                .length())) {
+                    base = match;
+                }
+            }
+        }
+        Match match;
+        if (key.isEmpty()) {
+            match = new Match(key, IntStream.range(0, keys.length).toArray(),
+                    new int[0]);
+        } else if (base != null) {
+            // typing ahead only narrows the result of a shorter filter
+            match = narrow(key, base);
+        } else {
+            match = find(key);
+        }
+        synchronized (this) {
+            matches().put(key, match);
+        }
+        return match;
+    }
+
+    private Map<String, Match> matches() {
+        if (matches == null) {
+            matches = new LinkedHashMap<String, Match>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, Match> eldest) {
+                    return size() > MAX_CACHED_MATCHES;
+                }
+            };
+        }
+        return matches;
+    }
+
+    private Match find(String key) {
+        int start = lowerBound(key);
+        int end = lowerBound(key + Character.MAX_VALUE);
+        int[] infix = IntStream.range(0, keys.length)
+                .filter(i -> (i < start || i >= end) && keys[i].contains(key))
+                .toArray();
+        return new Match(key, IntStream.range(start, end).toArray(), infix);
+    }
+
+    private Match narrow(String key, Match last) {
+        IntStream.Builder prefix = IntStream.builder();
+        IntStream.Builder infix = IntStream.builder();
+        int p = 0;
+        int q = 0;
+        // both arrays are ascending, merging keeps the result sorted
+        while (p < last.prefix.length || q < last.infix.length) {
+            int i;
+            if (q == last.infix.length || (p < last.prefix.length
+                    && last.prefix[p] < last.infix[q])) {
+                i = last.prefix[p++];
+            } else {
+                i = last.infix[q++];
+            }
+            if (keys[i].startsWith(key)) {
+                prefix.add(i);
+            } else if (keys[i].contains(key)) {
+                infix.add(i);
+            }
+        }
+        return new Match(key, prefix.build().toArray(),
+                infix.build().toArray());
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String key(Placeholder placeholder) {
+        String text = placeholder.getText();
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Indexes of the placeholders matching a filter, each part ascending.
+     */
+    private static final class Match {
+        private final String filter;
+        private final int[] prefix;
+        private final int[] infix;
+
+        private Match(String filter, int[] prefix, int[] infix) {
+            this.filter = filter;
+            this.prefix = prefix;
+            this.infix = infix;
+        }
+    }
+}
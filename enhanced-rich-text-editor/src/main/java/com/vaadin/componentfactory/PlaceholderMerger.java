@@ -0,0 +1,377 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+
+/**
+ * Merges data into the placeholders of a template, e.g. to generate letters
+ * from a document created with an {@link EnhancedRichTextEditor}. The
+ * template is analyzed once by {@link #compile(String)}, after which any
+ * number of rows can be merged, also concurrently.
+ * <p>
+ * A row maps placeholder ids (see {@link Placeholder#getId()}) to the values
+ * to insert. Each placeholder is replaced by the string value of its entry,
+ * formatted like the placeholder is shown in the editor: with the formats of
+ * the placeholder itself, overlaid by its {@code format}, or by its
+ * {@code altFormat} if the placeholder is shown in the alternative
+ * appearance. Placeholders without an entry in the row are kept.
+ * <p>
+ * As the values of a row are usually not trusted, HTML output is sanitized,
+ * by default with {@link SanitizerPolicy#DEFAULT}, see
+ * {@link #withSanitizerPolicy(SanitizerPolicy)}.
+ *
+ * <pre>
+ * PlaceholderMerger merger = PlaceholderMerger.compile(template);
+ * merger.mergeAll(rows, PlaceholderMerger.Format.HTML, out, "\n");
+ * </pre>
+ */
+public final class PlaceholderMerger implements Serializable {
+
+    /**
+     * The output format of a merge.
+     */
+    public enum Format {
+        /**
+         * A value in <a href="https://github.com/quilljs/delta">Delta</a>
+         * format, as used by {@link EnhancedRichTextEditor#setValue(String)}.
+         */
+        DELTA,
+        /**
+         * HTML, as returned by {@link EnhancedRichTextEditor#getHtmlValue()},
+         * sanitized with the policy of the merger.
+         */
+        HTML,
+        /**
+         * Plain text, as returned by
+         * {@link EnhancedRichTextEditor#getPlainText()}.
+         */
+        TEXT
+    }
+
+    private final List<Op> ops;
+    private final String[] opJson;
+    private final String[] opText;
+    private final String[] slotIds;
+    private final List<Map<String, Object>> slotAttributes;
+    private final SanitizerPolicy sanitizerPolicy;
+
+    private PlaceholderMerger(Iterator<Op> template) {
+        ops = new ArrayList<>();
+        template.forEachRemaining(ops::add);
+        opJson = new String[ops.size()];
+        opText = new String[ops.size()];
+        slotIds = new String[ops.size()];
+        slotAttributes = new ArrayList<>(
+                Collections.nCopies(ops.size(), null));
+        sanitizerPolicy = SanitizerPolicy.DEFAULT;
+        for (int i = 0; i < ops.size(); i++) {
+            Op op = ops.get(i);
+            opJson[i] = op.toJson().toJson();
+            StringBuilder text = new StringBuilder();
+            op.appendPlainText(text);
+            opText[i] = text.toString();
+            JsonValue value = op.getEmbedValue();
+            if ("placeholder".equals(op.getEmbedType())
+                    && value.getType() == JsonType.OBJECT) {
+                Placeholder placeholder = new Placeholder((JsonObject) value);
+                slotIds[i] = placeholder.getId();
+                slotAttributes.set(i, attributes(op, (JsonObject) value));
+            }
+        }
+        // like the editor, the plain text leaves out the final line break
+        int last = ops.size() - 1;
+        if (last >= 0 && opText[last].endsWith("\n")) {
+            opText[last] = opText[last].substring(0,
+                    opText[last].length() - 1);
+        }
+    }
+
+    private PlaceholderMerger(PlaceholderMerger merger,
+            SanitizerPolicy sanitizerPolicy) {
+        ops = merger.ops;
+        opJson = merger.opJson;
+        opText = merger.opText;
+        slotIds = merger.slotIds;
+        slotAttributes = merger.slotAttributes;
+        this.sanitizerPolicy = sanitizerPolicy;
+    }
+
+    /**
+     * Compiles a template given as editor value.
+     *
+     * @param template
+     *            the template in Delta format, not {@code null}
+     * @return the merger for the template
+     */
+    public static PlaceholderMerger compile(String template) {
+        return new PlaceholderMerger(new DeltaReader(template));
+    }
+
+    /**
+     * Compiles a template given as delta.
+     *
+     * @param template
+     *            the template, not {@code null}
+     * @return the merger for the template
+     */
+    public static PlaceholderMerger compile(Delta template) {
+        Objects.requireNonNull(template, "Template cannot be null");
+        return new PlaceholderMerger(template.getOps().iterator());
+    }
+
+    /**
+     * Returns a merger for the same template, sanitizing HTML output with
+     * the given policy, e.g. the policy of the editor the template was
+     * created with.
+     *
+     * @param sanitizerPolicy
+     *            the policy, not {@code null}
+     * @return the merger using the policy
+     * @see EnhancedRichTextEditor#getSanitizerPolicy()
+     */
+    public PlaceholderMerger withSanitizerPolicy(
+            SanitizerPolicy sanitizerPolicy) {
+        return new PlaceholderMerger(this, Objects.requireNonNull(
+                sanitizerPolicy, "SanitizerPolicy cannot be null"));
+    }
+
+    /**
+     * Gets the ids of the placeholders used in the template, in the order of
+     * their first occurrence.
+     *
+     * @return the placeholder ids
+     */
+    public Set<String> getPlaceholderIds() {
+        Set<String> ids = new LinkedHashSet<>();
+        for (String id : slotIds) {
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Merges one row into the template.
+     *
+     * @param row
+     *            the values by placeholder id, not {@code null}
+     * @return the merged document as delta
+     */
+    public Delta merge(Map<String, ?> row) {
+        return new Delta(mergeOps(row));
+    }
+
+    /**
+     * Merges one row into the template.
+     *
+     * @param row
+     *            the values by placeholder id, not {@code null}
+     * @param format
+     *            the output format, not {@code null}
+     * @return the merged document in the given format
+     */
+    public String merge(Map<String, ?> row, Format format) {
+        Objects.requireNonNull(row, "Row cannot be null");
+        Objects.requireNonNull(format, "Format cannot be null");
+        switch (format) {
+        case DELTA:
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < opJson.length; i++) {
+                json.append(i > 0 ? "," : "");
+                Object value = slotIds[i] == null ? null
+                        : row.get(slotIds[i]);
+                json.append(value == null ? opJson[i]
+                        : replacement(i, value).toJson().toJson());
+            }
+            return json.append(']').toString();
+        case HTML:
+            return sanitizerPolicy.sanitize(
+                    DeltaHtmlRenderer.render(mergeOps(row).iterator()));
+        default:
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < opText.length; i++) {
+                Object value = slotIds[i] == null ? null
+                        : row.get(slotIds[i]);
+                text.append(value == null ? opText[i] : value.toString());
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Merges all rows into the template, on the common fork-join pool, and
+     * writes the results to the given stream in the order of the rows.
+     *
+     * @param rows
+     *            the rows, not {@code null}
+     * @param format
+     *            the output format, not {@code null}
+     * @param out
+     *            the stream to write to, in UTF-8; it is flushed, but not
+     *            closed
+     * @param separator
+     *            the text to write between two results, not {@code null}
+     * @throws IOException
+     *             if writing to the stream fails
+     * @see #mergeAll(Iterator, Format, OutputStream, String, Executor)
+     */
+    public void mergeAll(Iterable<? extends Map<String, ?>> rows,
+            Format format, OutputStream out, String separator)
+            throws IOException {
+        mergeAll(rows.iterator(), format, out, separator,
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Merges all rows into the template with the given executor, and writes
+     * the results to the given stream in the order of the rows. Rows are
+     * merged in parallel, but only a few more than there are processors are
+     * held in memory at a time, so the rows may come from a lazy source and
+     * the output may be streamed to the client. The executor may as well use
+     * virtual threads.
+     *
+     * @param rows
+     *            the rows, not {@code null}
+     * @param format
+     *            the output format, not {@code null}
+     * @param out
+     *            the stream to write to, in UTF-8; it is flushed, but not
+     *            closed
+     * @param separator
+     *            the text to write between two results, not {@code null}
+     * @param executor
+     *            the executor to merge the rows with, not {@code null}
+     * @throws IOException
+     *             if writing to the stream fails
+     */
+    public void mergeAll(Iterator<? extends Map<String, ?>> rows,
+            Format format, OutputStream out, String separator,
+            Executor executor) throws IOException {
+        Objects.requireNonNull(rows, "Rows cannot be null");
+        Objects.requireNonNull(format, "Format cannot be null");
+        Objects.requireNonNull(out, "Output stream cannot be null");
+        Objects.requireNonNull(separator, "Separator cannot be null");
+        Objects.requireNonNull(executor, "Executor cannot be null");
+        int window = 2 * Runtime.getRuntime().availableProcessors() + 2;
+        Deque<CompletableFuture<String>> pending = new ArrayDeque<>();
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        try {
+            boolean first = true;
+            while (rows.hasNext() || !pending.isEmpty()) {
+                while (rows.hasNext() && pending.size() < window) {
+                    Map<String, ?> row = rows.next();
+                    pending.add(CompletableFuture
+                            .supplyAsync(() -> merge(row, format), executor));
+                }
+                String result = pending.poll().join();
+                if (!first) {
+                    writer.write(separator);
+                }
+                writer.write(result);
+                first = false;
+            }
+            writer.flush();
+        } catch (CompletionException e) {
+            pending.forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            pending.forEach(future -> future.cancel(false));
+            throw e;
+        }
+    }
+
+    private List<Op> mergeOps(Map<String, ?> row) {
+        List<Op> merged = new ArrayList<>(ops.size());
+        for (int i = 0; i < ops.size(); i++) {
+            Object value = slotIds[i] == null ? null : row.get(slotIds[i]);
+            merged.add(value == null ? ops.get(i) : replacement(i, value));
+        }
+        return merged;
+    }
+
+    private Op replacement(int slot, Object value) {
+        return Op.insert(value.toString(), slotAttributes.get(slot));
+    }
+
+    /**
+     * The formats of the text replacing a placeholder.
+     */
+    private static Map<String, Object> attributes(Op op,
+            JsonObject placeholder) {
+        Map<String, Object> attributes = new LinkedHashMap<>(
+                op.getAttributes());
+        String formatKey = placeholder.hasKey("altAppearance")
+                && placeholder.get("altAppearance").getType() == JsonType.BOOLEAN
+                && placeholder.getBoolean("altAppearance") ? "altFormat"
+                        : "format";
+        if (placeholder.hasKey(formatKey) && placeholder.get(formatKey)
+                .getType() == JsonType.OBJECT) {
+            JsonObject format = placeholder.getObject(formatKey);
+            for (String key : format.keys()) {
+                JsonValue value = format.get(key);
+                switch (value.getType()) {
+                case BOOLEAN:
+                    attributes.put(key, value.asBoolean());
+                    break;
+                case NUMBER:
+                    attributes.put(key, value.asNumber());
+                    break;
+                case STRING:
+                    attributes.put(key, value.asString());
+                    break;
+                case NULL:
+                    attributes.remove(key);
+                    break;
+                default:
+                    attributes.put(key, value);
+                }
+            }
+        }
+        attributes.values().removeIf(Objects::isNull);
+        return Collections.unmodifiableMap(attributes);
+    }
+}
@@ -0,0 +1,91 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * For internal use only. Renders editor values into sanitized HTML for
+ * {@link RichTextView} and keeps the most recently used results, up to a
+ * total number of characters, in memory. The cache is shared by all views
+ * and renderers, so a value shown in many places with the same policy is
+ * rendered only once.
+ */
+final class RichTextRenderCache {
+
+    static final RichTextRenderCache INSTANCE = new RichTextRenderCache(
+            8 * 1024 * 1024);
+
+    private final long maxSize;
+    private final Map<List<Object>, String> rendered = new LinkedHashMap<>(
+            16, 0.75f, true);
+    private long size;
+
+    RichTextRenderCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the HTML of the given value sanitized with the given policy,
+     * rendering it if it is not cached. Safelist based policies, like
+     * {@link SanitizerPolicy#DEFAULT}, additionally keep the elements of
+     * tabs, so that the view can lay them out according to the tab stops.
+     */
+    String render(SanitizerPolicy policy, String value) {
+        List<Object> key = Arrays.asList(policy, value);
+        synchronized (rendered) {
+            String html = rendered.get(key);
+            if (html != null) {
+                return html;
+            }
+        }
+        String html = DeltaHtmlRenderer.render(value);
+        html = policy instanceof SafelistSanitizerPolicy
+                ? ((SafelistSanitizerPolicy) policy).sanitizeView(html)
+                : policy.sanitize(html);
+        put(key, html);
+        return html;
+    }
+
+    private void put(List<Object> key, String html) {
+        long entrySize = (long) size(key) + html.length();
+        if (entrySize > maxSize) {
+            return;
+        }
+        synchronized (rendered) {
+            String previous = rendered.put(key, html);
+            size += entrySize - (previous == null ? 0
+                    : size(key) + previous.length());
+            Iterator<Map.Entry<List<Object>, String>> eldest = rendered
+                    .entrySet().iterator();
+            while (size > maxSize) {
+                Map.Entry<List<Object>, String> entry = eldest.next();
+                size -= size(entry.getKey()) + entry.getValue().length();
+                eldest.remove();
+            }
+        }
+    }
+
+    private static int size(List<Object> key) {
+        return ((String) key.get(1)).length();
+    }
+}
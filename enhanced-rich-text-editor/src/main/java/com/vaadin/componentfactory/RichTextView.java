@@ -0,0 +1,254 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.HasSize;
+import com.vaadin.flow.component.HasStyle;
+import com.vaadin.flow.component.Tag;
+import com.vaadin.flow.component.dependency.JsModule;
+import com.vaadin.flow.data.renderer.ComponentRenderer;
+import com.vaadin.flow.data.renderer.LitRenderer;
+import com.vaadin.flow.function.ValueProvider;
+
+/**
+ * Shows a value of an {@link EnhancedRichTextEditor} read-only, without an
+ * editor. The value is rendered into sanitized HTML on the server, see
+ * {@link DeltaHtmlRenderer}, and shown with the content styles of the editor.
+ * Tabs are laid out in the browser according to the tab stops, like in the
+ * editor. Placeholders and readonly sections keep their appearance.
+ * <p>
+ * The view does not create a Quill instance, toolbar or dialogs, which makes
+ * it suitable for many snippets, like in the rows of a grid. For grids,
+ * {@link #createRenderer(ValueProvider)} is lighter still. The rendered HTML
+ * is cached and shared by all views and renderers of the application.
+ * <p>
+ * The HTML is sanitized with {@link SanitizerPolicy#DEFAULT}, or the policy
+ * set with {@link #setSanitizerPolicy(SanitizerPolicy)}. Safelist based
+ * policies additionally keep the elements of tabs and the classes of the
+ * editor content styles.
+ */
+@Tag("vcf-rich-text-view")
+@JsModule("./src/vcf-rich-text-view.js")
+public class RichTextView extends Component implements HasSize, HasStyle {
+
+    private static final String TEMPLATE = "<vcf-rich-text-view .html=${item.html}"
+            + " .tabStops=${%s}></vcf-rich-text-view>";
+
+    private String value = "";
+    private List<TabStop> tabStops = Collections.emptyList();
+    private SanitizerPolicy sanitizerPolicy = SanitizerPolicy.DEFAULT;
+
+    /**
+     * Creates an empty view.
+     */
+    public RichTextView() {
+    }
+
+    /**
+     * Creates a view of the given value.
+     *
+     * @param value
+     *            the value in Delta format, not {@code null}
+     */
+    public RichTextView(String value) {
+        setValue(value);
+    }
+
+    /**
+     * Sets the value to show.
+     *
+     * @param value
+     *            the value in Delta format, as returned by
+     *            {@link EnhancedRichTextEditor#getValue()}, not {@code null}
+     */
+    public void setValue(String value) {
+        Objects.requireNonNull(value, "value cannot be null");
+        this.value = value;
+        getElement().setProperty("html", render(sanitizerPolicy, value));
+    }
+
+    /**
+     * Sets the value to show.
+     *
+     * @param delta
+     *            the value, not {@code null}
+     */
+    public void setValue(Delta delta) {
+        Objects.requireNonNull(delta, "delta cannot be null");
+        setValue(delta.toValue());
+    }
+
+    /**
+     * Gets the value shown.
+     *
+     * @return the value in Delta format
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the sanitized HTML the value is rendered into.
+     *
+     * @return the HTML
+     */
+    public String getHtml() {
+        return render(sanitizerPolicy, value);
+    }
+
+    /**
+     * Sets the policy used to sanitize the HTML, e.g. the policy of the
+     * editor the value was written with. The rendered HTML is cached per
+     * policy instance, so views should share their policy.
+     *
+     * @param sanitizerPolicy
+     *            the policy, not {@code null}
+     * @see EnhancedRichTextEditor#getSanitizerPolicy()
+     */
+    public void setSanitizerPolicy(SanitizerPolicy sanitizerPolicy) {
+        this.sanitizerPolicy = Objects.requireNonNull(sanitizerPolicy,
+                "SanitizerPolicy cannot be null");
+        setValue(value);
+    }
+
+    /**
+     * Gets the policy used to sanitize the HTML.
+     *
+     * @return the sanitizer policy
+     */
+    public SanitizerPolicy getSanitizerPolicy() {
+        return sanitizerPolicy;
+    }
+
+    /**
+     * Sets the tab stops used to lay out tabs, usually the ones of the editor
+     * the value was written with.
+     *
+     * @param tabStops
+     *            the tab stops, not {@code null}
+     */
+    public void setTabStops(List<TabStop> tabStops) {
+        Objects.requireNonNull(tabStops, "tabStops cannot be null");
+        this.tabStops = new ArrayList<>(tabStops);
+        getElement().setPropertyJson("tabStops", TabStop.toJson(tabStops));
+    }
+
+    /**
+     * Gets the tab stops used to lay out tabs.
+     *
+     * @return the tab stops
+     */
+    public List<TabStop> getTabStops() {
+        return Collections.unmodifiableList(tabStops);
+    }
+
+    /**
+     * Creates a renderer showing values like a {@link RichTextView}, e.g. in
+     * the columns of a grid. Only the rendered HTML is sent per item.
+     *
+     * @param <T>
+     *            the type of the items
+     * @param valueProvider
+     *            provides the value of an item in Delta format, not
+     *            {@code null}
+     * @return the renderer
+     */
+    public static <T> LitRenderer<T> createRenderer(
+            ValueProvider<T, String> valueProvider) {
+        return createRenderer(valueProvider, Collections.emptyList());
+    }
+
+    /**
+     * Creates a renderer showing values like a {@link RichTextView}, e.g. in
+     * the columns of a grid. Only the rendered HTML is sent per item, the tab
+     * stops are part of the template and sent once.
+     *
+     * @param <T>
+     *            the type of the items
+     * @param valueProvider
+     *            provides the value of an item in Delta format, not
+     *            {@code null}
+     * @param tabStops
+     *            the tab stops of all items, not {@code null}
+     * @return the renderer
+     */
+    public static <T> LitRenderer<T> createRenderer(
+            ValueProvider<T, String> valueProvider, List<TabStop> tabStops) {
+        return createRenderer(valueProvider, tabStops,
+                SanitizerPolicy.DEFAULT);
+    }
+
+    /**
+     * Creates a renderer showing values like a {@link RichTextView}, with
+     * the HTML sanitized by the given policy.
+     *
+     * @param <T>
+     *            the type of the items
+     * @param valueProvider
+     *            provides the value of an item in Delta format, not
+     *            {@code null}
+     * @param tabStops
+     *            the tab stops of all items, not {@code null}
+     * @param sanitizerPolicy
+     *            the policy, not {@code null}
+     * @return the renderer
+     * @see #setSanitizerPolicy(SanitizerPolicy)
+     */
+    public static <T> LitRenderer<T> createRenderer(
+            ValueProvider<T, String> valueProvider, List<TabStop> tabStops,
+            SanitizerPolicy sanitizerPolicy) {
+        Objects.requireNonNull(valueProvider, "valueProvider cannot be null");
+        Objects.requireNonNull(tabStops, "tabStops cannot be null");
+        Objects.requireNonNull(sanitizerPolicy,
+                "SanitizerPolicy cannot be null");
+        return LitRenderer.<T> of(String.format(TEMPLATE,
+                TabStop.toJson(tabStops).toJson())).withProperty("html",
+                        item -> render(sanitizerPolicy,
+                                valueProvider.apply(item)));
+    }
+
+    /**
+     * Creates a renderer showing values in {@link RichTextView} components,
+     * for when components are needed, e.g. to add listeners.
+     *
+     * @param <T>
+     *            the type of the items
+     * @param valueProvider
+     *            provides the value of an item in Delta format, not
+     *            {@code null}
+     * @return the renderer
+     */
+    public static <T> ComponentRenderer<RichTextView, T> createComponentRenderer(
+            ValueProvider<T, String> valueProvider) {
+        Objects.requireNonNull(valueProvider, "valueProvider cannot be null");
+        return new ComponentRenderer<>(() -> new RichTextView(),
+                (view, item) -> view.setValue(valueProvider.apply(item)));
+    }
+
+    private static String render(SanitizerPolicy sanitizerPolicy,
+            String value) {
+        return value == null || value.isEmpty() ? ""
+                : RichTextRenderCache.INSTANCE.render(sanitizerPolicy, value);
+    }
+}
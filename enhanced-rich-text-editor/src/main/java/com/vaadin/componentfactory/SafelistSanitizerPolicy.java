@@ -0,0 +1,142 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.safety.Safelist;
+
+import com.vaadin.flow.function.SerializableSupplier;
+
+/**
+ * For internal use only. A {@link SanitizerPolicy} based on a jsoup
+ * {@link Safelist}, which is created lazily once per policy. The safelist
+ * itself is not serializable and is recreated after deserialization.
+ */
+class SafelistSanitizerPolicy implements SanitizerPolicy {
+
+    private final SerializableSupplier<Safelist> safelistFactory;
+    private transient volatile Safelist safelist;
+    private transient volatile Safelist viewSafelist;
+
+    SafelistSanitizerPolicy(SerializableSupplier<Safelist> safelistFactory) {
+        this.safelistFactory = Objects.requireNonNull(safelistFactory,
+                "Safelist factory cannot be null");
+    }
+
+    @Override
+    public String sanitize(String html) {
+        return Jsoup.clean(html, getSafelist());
+    }
+
+    /**
+     * Sanitizes HTML rendered for a {@link RichTextView}. In addition to the
+     * safelist of the policy, the elements of tabs and the {@code ql-}
+     * classes of the renderer are kept, and so is white space.
+     */
+    String sanitizeView(String html) {
+        Safelist current = viewSafelist;
+        if (current == null) {
+            current = new ViewSafelist(getSafelist());
+            viewSafelist = current;
+        }
+        return Jsoup.clean(html, "", current,
+                new Document.OutputSettings().prettyPrint(false));
+    }
+
+    private Safelist getSafelist() {
+        Safelist current = safelist;
+        if (current == null) {
+            current = Objects.requireNonNull(safelistFactory.get(),
+                    "Safelist factory returned null");
+            safelist = current;
+        }
+        return current;
+    }
+
+    /**
+     * Creates a copy of the given safelist that additionally accepts
+     * references to images of an {@link ImageStore} as {@code src} of
+     * images. Being relative URLs, they would be removed by the protocol
+     * check otherwise.
+     */
+    static Safelist allowStoredImages(Safelist safelist) {
+        return new StoredImagesSafelist(safelist);
+    }
+
+    private static class StoredImagesSafelist extends Safelist {
+
+        private static final Pattern REFERENCE = Pattern
+                .compile(Pattern.quote(ImageStore.PATH)
+                        + "[\\w.-]+(\\?width=\\d+)?");
+
+        private StoredImagesSafelist(Safelist safelist) {
+            super(safelist);
+        }
+
+        @Override
+        protected boolean isSafeAttribute(String tagName, Element el,
+                Attribute attr) {
+            if (isReference(tagName, attr)) {
+                return true;
+            }
+            return super.isSafeAttribute(tagName, el, attr);
+        }
+
+        private static boolean isReference(String tagName, Attribute attr) {
+            return "img".equals(tagName) && "src".equals(attr.getKey())
+                    && REFERENCE.matcher(attr.getValue()).matches();
+        }
+    }
+
+    private static class ViewSafelist extends Safelist {
+
+        private static final Pattern CLASSES = Pattern
+                .compile("ql-[\\w-]+( ql-[\\w-]+)*");
+
+        private final boolean storedImages;
+
+        private ViewSafelist(Safelist safelist) {
+            super(safelist);
+            storedImages = safelist instanceof StoredImagesSafelist;
+            addTags("tabs-cont", "tab", "pre-tab", "line-part");
+            addAttributes("tab", "level");
+            addAttributes("tabs-cont", "tabs-count");
+            addAttributes("ul", "data-checked");
+            addAttributes(":all", "class");
+        }
+
+        @Override
+        protected boolean isSafeAttribute(String tagName, Element el,
+                Attribute attr) {
+            if ("class".equals(attr.getKey())) {
+                return CLASSES.matcher(attr.getValue()).matches();
+            }
+            if (storedImages && StoredImagesSafelist.isReference(tagName,
+                    attr)) {
+                return true;
+            }
+            return super.isSafeAttribute(tagName, el, attr);
+        }
+    }
+}
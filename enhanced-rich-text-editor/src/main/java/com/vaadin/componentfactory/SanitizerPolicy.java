@@ -0,0 +1,71 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.Serializable;
+
+import org.jsoup.safety.Safelist;
+
+import com.vaadin.flow.function.SerializableSupplier;
+
+/**
+ * Policy used to sanitize the HTML value of an
+ * {@link EnhancedRichTextEditor}. Implementations must be stateless, as a
+ * single policy instance may be shared by any number of editors.
+ *
+ * @see EnhancedRichTextEditor#setSanitizerPolicy(SanitizerPolicy)
+ */
+@FunctionalInterface
+public interface SanitizerPolicy extends Serializable {
+
+    /**
+     * The default policy. Based on the basic safelist of jsoup, it also
+     * allows headers, strike through, the {@code style} attribute and images,
+     * including images with the data protocol and images of an
+     * {@link ImageStore}.
+     */
+    SanitizerPolicy DEFAULT = of(() -> SafelistSanitizerPolicy
+            .allowStoredImages(Safelist.basic()
+                    .addTags("img", "h1", "h2", "h3", "s")
+                    .addAttributes("img", "align", "alt", "height", "src",
+                            "title", "width")
+                    .addAttributes(":all", "style")
+                    .addProtocols("img", "src", "data")));
+
+    /**
+     * Sanitizes the given HTML.
+     *
+     * @param html
+     *            the HTML to sanitize, not {@code null}
+     * @return the sanitized HTML
+     */
+    String sanitize(String html);
+
+    /**
+     * Creates a policy cleaning HTML with a jsoup safelist. The safelist is
+     * created once by the given factory and then shared by all editors
+     * using the policy, so it must not be modified afterwards.
+     *
+     * @param safelistFactory
+     *            the factory creating the safelist, not {@code null}
+     * @return the policy
+     */
+    static SanitizerPolicy of(SerializableSupplier<Safelist> safelistFactory) {
+        return new SafelistSanitizerPolicy(safelistFactory);
+    }
+}
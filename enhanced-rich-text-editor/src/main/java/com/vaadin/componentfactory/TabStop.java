@@ -18,6 +18,11 @@ package com.vaadin.componentfactory;
  */
 
 import java.io.Serializable;
+import java.util.List;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
 
 /*
   TabStop is class for defining where tab stop should be located on ruler(by setting @position in pixels)
@@ -56,6 +61,21 @@ public class TabStop implements Serializable {
         this.position = position;
     }
 
+    /**
+     * For internal use only. Converts tab stops into the JSON of the
+     * {@code tabStops} property of the web components.
+     */
+    static JsonArray toJson(List<TabStop> tabStops) {
+        JsonArray array = Json.createArray();
+        for (TabStop tab : tabStops) {
+            JsonObject obj = Json.createObject();
+            obj.put("direction", tab.getDirection().name().toLowerCase());
+            obj.put("position", tab.getPosition());
+            array.set(array.length(), obj);
+        }
+        return array;
+    }
+
     @Override
     public String toString() {
         return "TabStop{" + "direction=" + direction + ", position=" + position
@@ -0,0 +1,99 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.Serializable;
+
+/**
+ * An immutable range of editor positions, like the client side counts them:
+ * every character counts as one, and so do tabs, placeholders and other
+ * embeds.
+ *
+ * @see EnhancedRichTextEditor#getReadonlyRanges()
+ */
+public final class TextRange implements Serializable {
+
+    private final int start;
+    private final int length;
+
+    /**
+     * Creates a range.
+     *
+     * @param start
+     *            the position of the first character, not negative
+     * @param length
+     *            the number of characters, not negative
+     */
+    public TextRange(int start, int length) {
+        if (start < 0 || length < 0) {
+            throw new IllegalArgumentException(
+                    "Start and length cannot be negative");
+        }
+        this.start = start;
+        this.length = length;
+    }
+
+    /**
+     * Gets the position of the first character.
+     *
+     * @return the start of the range
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the number of characters.
+     *
+     * @return the length of the range
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Gets the position after the last character.
+     *
+     * @return the end of the range, exclusive
+     */
+    public int getEnd() {
+        return start + length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof TextRange)) {
+            return false;
+        }
+        TextRange other = (TextRange) o;
+        return start == other.start && length == other.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * start + length;
+    }
+
+    @Override
+    public String toString() {
+        return "TextRange{" + start + " - " + getEnd() + "}";
+    }
+}
@@ -0,0 +1,447 @@
+package com.vaadin.componentfactory;
+
+/*
+ * #%L
+ * Vaadin EnhancedRichTextEditor for Vaadin 10
+ * %%
+ * Copyright (C) 2019 Vaadin Ltd
+ * %%
+ * This program is available under Commercial Vaadin Add-On License 3.0
+ * (CVALv3).
+ *
+ * See the file license.html distributed with this software for more
+ * information about licensing.
+ *
+ * You should have received a copy of the CVALv3 along with this program.
+ * If not, see <http://vaadin.com/license/cval-3>.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.vaadin.componentfactory.EnhancedRichTextEditor.ToolbarButton;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+/**
+ * Immutable configuration of the toolbar of an
+ * {@link EnhancedRichTextEditor}: the visibility of the standard buttons and
+ * the keyboard shortcuts of the standard buttons and of the toolbar itself.
+ * <p>
+ * A configuration can be shared as a preset by any number of editors, for
+ * example as a constant of the application. It is serialized for the browser
+ * only once. When the configuration of an editor is replaced, only the
+ * differences to the previous one are sent.
+ *
+ * <pre>
+ * static final ToolbarConfig COMPACT = ToolbarConfig.DEFAULT
+ *         .withHiddenButtons(ToolbarButton.H3, ToolbarButton.CODE_BLOCK)
+ *         .withShortcut(Shortcut.forButton(ToolbarButton.READONLY, 82, true,
+ *                 true, false));
+ * </pre>
+ *
+ * @see EnhancedRichTextEditor#setToolbarConfig(ToolbarConfig)
+ */
+public final class ToolbarConfig implements Serializable {
+
+    /**
+     * The default configuration, showing all buttons without additional
+     * shortcuts.
+     */
+    public static final ToolbarConfig DEFAULT = new ToolbarConfig(
+            new EnumMap<>(ToolbarButton.class), Collections.emptyList());
+
+    private final Map<ToolbarButton, Boolean> buttons;
+    private final List<Shortcut> shortcuts;
+    private transient volatile JsonObject json;
+
+    private ToolbarConfig(EnumMap<ToolbarButton, Boolean> buttons,
+            List<Shortcut> shortcuts) {
+        this.buttons = Collections.unmodifiableMap(buttons);
+        this.shortcuts = Collections.unmodifiableList(shortcuts);
+    }
+
+    /**
+     * Creates a configuration with the given visibility of the buttons.
+     *
+     * @param buttonsVisibility
+     *            the visibility by button, buttons without value are visible
+     * @return the configuration
+     */
+    public static ToolbarConfig of(
+            Map<ToolbarButton, Boolean> buttonsVisibility) {
+        return DEFAULT.withButtonsVisibility(buttonsVisibility);
+    }
+
+    /**
+     * Gets the visibility of the buttons which have been set explicitly.
+     *
+     * @return an unmodifiable map of the visibility by button
+     */
+    public Map<ToolbarButton, Boolean> getButtonsVisibility() {
+        return buttons;
+    }
+
+    /**
+     * Gets whether the given button is visible.
+     *
+     * @param button
+     *            the button, not {@code null}
+     * @return {@code true} unless the button has been hidden
+     */
+    public boolean isButtonVisible(ToolbarButton button) {
+        return !Boolean.FALSE.equals(buttons.get(button));
+    }
+
+    /**
+     * Gets the additional shortcuts, in the order they were added.
+     *
+     * @return an unmodifiable list of the shortcuts
+     */
+    public List<Shortcut> getShortcuts() {
+        return shortcuts;
+    }
+
+    /**
+     * Creates a copy of this configuration with the visibility of a button
+     * changed.
+     *
+     * @param button
+     *            the button, not {@code null}
+     * @param visible
+     *            whether the button is visible
+     * @return the new configuration
+     */
+    public ToolbarConfig withButtonVisible(ToolbarButton button,
+            boolean visible) {
+        Objects.requireNonNull(button, "button cannot be null");
+        EnumMap<ToolbarButton, Boolean> copy = copyButtons(buttons);
+        copy.put(button, visible);
+        return new ToolbarConfig(copy, shortcuts);
+    }
+
+    /**
+     * Creates a copy of this configuration with the given buttons hidden.
+     *
+     * @param hidden
+     *            the buttons to hide
+     * @return the new configuration
+     */
+    public ToolbarConfig withHiddenButtons(ToolbarButton... hidden) {
+        EnumMap<ToolbarButton, Boolean> copy = copyButtons(buttons);
+        for (ToolbarButton button : hidden) {
+            copy.put(button, false);
+        }
+        return new ToolbarConfig(copy, shortcuts);
+    }
+
+    /**
+     * Creates a copy of this configuration with the visibility of all
+     * buttons replaced.
+     *
+     * @param buttonsVisibility
+     *            the visibility by button, buttons without value are visible
+     * @return the new configuration
+     */
+    public ToolbarConfig withButtonsVisibility(
+            Map<ToolbarButton, Boolean> buttonsVisibility) {
+        Objects.requireNonNull(buttonsVisibility,
+                "buttonsVisibility cannot be null");
+        EnumMap<ToolbarButton, Boolean> copy = new EnumMap<>(
+                ToolbarButton.class);
+        buttonsVisibility.forEach((button, visible) -> {
+            if (button != null && visible != null) {
+                copy.put(button, visible);
+            }
+        });
+        return new ToolbarConfig(copy, shortcuts);
+    }
+
+    /**
+     * Creates a copy of this configuration with a shortcut added.
+     *
+     * @param shortcut
+     *            the shortcut, not {@code null}
+     * @return the new configuration, or this one if it already contains the
+     *         shortcut
+     */
+    public ToolbarConfig withShortcut(Shortcut shortcut) {
+        Objects.requireNonNull(shortcut, "shortcut cannot be null");
+        if (shortcuts.contains(shortcut)) {
+            return this;
+        }
+        List<Shortcut> copy = new ArrayList<>(shortcuts);
+        copy.add(shortcut);
+        return new ToolbarConfig(copyButtons(buttons), copy);
+    }
+
+    /**
+     * Creates a copy of this configuration with a shortcut removed.
+     *
+     * @param shortcut
+     *            the shortcut, not {@code null}
+     * @return the new configuration, or this one if it does not contain the
+     *         shortcut
+     */
+    public ToolbarConfig withoutShortcut(Shortcut shortcut) {
+        Objects.requireNonNull(shortcut, "shortcut cannot be null");
+        if (!shortcuts.contains(shortcut)) {
+            return this;
+        }
+        List<Shortcut> copy = new ArrayList<>(shortcuts);
+        copy.remove(shortcut);
+        return new ToolbarConfig(copyButtons(buttons), copy);
+    }
+
+    /**
+     * Gets the complete configuration for the browser. It is created once
+     * per configuration.
+     */
+    JsonObject toJson() {
+        JsonObject result = json;
+        if (result == null) {
+            result = Json.createObject();
+            result.put("full", true);
+            JsonObject visibility = Json.createObject();
+            buttons.forEach((button, visible) -> visibility
+                    .put(button.getButtonName(), visible));
+            result.put("buttons", visibility);
+            result.put("shortcuts", toJson(shortcuts));
+            result.put("removedShortcuts", Json.createArray());
+            json = result;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the changes from the given configuration to this one for the
+     * browser.
+     *
+     * @return the changes, or {@code null} if there are none
+     */
+    JsonObject diff(ToolbarConfig previous) {
+        JsonObject visibility = Json.createObject();
+        for (ToolbarButton button : ToolbarButton.values()) {
+            boolean visible = isButtonVisible(button);
+            if (visible != previous.isButtonVisible(button)) {
+                visibility.put(button.getButtonName(), visible);
+            }
+        }
+        List<Shortcut> added = new ArrayList<>(shortcuts);
+        added.removeAll(previous.shortcuts);
+        JsonArray removed = Json.createArray();
+        previous.shortcuts.stream()
+                .filter(shortcut -> !shortcuts.contains(shortcut))
+                .forEach(shortcut -> removed.set(removed.length(),
+                        shortcut.getId()));
+        if (visibility.keys().length == 0 && added.isEmpty()
+                && removed.length() == 0) {
+            return null;
+        }
+        JsonObject result = Json.createObject();
+        result.put("full", false);
+        result.put("buttons", visibility);
+        result.put("shortcuts", toJson(added));
+        result.put("removedShortcuts", removed);
+        return result;
+    }
+
+    private static JsonArray toJson(List<Shortcut> shortcuts) {
+        JsonArray array = Json.createArray();
+        shortcuts.forEach(
+                shortcut -> array.set(array.length(), shortcut.toJson()));
+        return array;
+    }
+
+    private static EnumMap<ToolbarButton, Boolean> copyButtons(
+            Map<ToolbarButton, Boolean> buttons) {
+        EnumMap<ToolbarButton, Boolean> copy = new EnumMap<>(
+                ToolbarButton.class);
+        copy.putAll(buttons);
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ToolbarConfig)) {
+            return false;
+        }
+        ToolbarConfig other = (ToolbarConfig) obj;
+        return buttons.equals(other.buttons)
+                && shortcuts.equals(other.shortcuts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(buttons, shortcuts);
+    }
+
+    /**
+     * A keyboard shortcut triggering a standard toolbar button or focusing
+     * the toolbar. The modifiers are {@code true} if the key must be
+     * pressed, {@code false} if it must not be pressed and {@code null} if
+     * it does not matter.
+     */
+    public static final class Shortcut implements Serializable {
+        private final ToolbarButton button;
+        private final int keyCode;
+        private final Boolean shortKey;
+        private final Boolean shiftKey;
+        private final Boolean altKey;
+
+        private Shortcut(ToolbarButton button, int keyCode, Boolean shortKey,
+                Boolean shiftKey, Boolean altKey) {
+            this.button = button;
+            this.keyCode = keyCode;
+            this.shortKey = shortKey;
+            this.shiftKey = shiftKey;
+            this.altKey = altKey;
+        }
+
+        /**
+         * Creates a shortcut triggering a standard toolbar button.
+         *
+         * @param button
+         *            the button, not {@code null}
+         * @param keyCode
+         *            the key code
+         * @param shortKey
+         *            whether the ctrl key, or the command key on Mac, is
+         *            pressed
+         * @param shiftKey
+         *            whether the shift key is pressed
+         * @param altKey
+         *            whether the alt key is pressed
+         * @return the shortcut
+         */
+        public static Shortcut forButton(ToolbarButton button, int keyCode,
+                Boolean shortKey, Boolean shiftKey, Boolean altKey) {
+            Objects.requireNonNull(button, "button cannot be null");
+            return new Shortcut(button, keyCode, shortKey, shiftKey, altKey);
+        }
+
+        /**
+         * Creates a shortcut focusing the toolbar.
+         *
+         * @param keyCode
+         *            the key code
+         * @param shortKey
+         *            whether the ctrl key, or the command key on Mac, is
+         *            pressed
+         * @param shiftKey
+         *            whether the shift key is pressed
+         * @param altKey
+         *            whether the alt key is pressed
+         * @return the shortcut
+         */
+        public static Shortcut forToolbarFocus(int keyCode, Boolean shortKey,
+                Boolean shiftKey, Boolean altKey) {
+            return new Shortcut(null, keyCode, shortKey, shiftKey, altKey);
+        }
+
+        /**
+         * Gets the button triggered by the shortcut.
+         *
+         * @return the button, or {@code null} if the shortcut focuses the
+         *         toolbar
+         */
+        public ToolbarButton getButton() {
+            return button;
+        }
+
+        /**
+         * Gets the key code.
+         *
+         * @return the key code
+         */
+        public int getKeyCode() {
+            return keyCode;
+        }
+
+        /**
+         * Gets the ctrl key modifier.
+         *
+         * @return whether the ctrl key, or the command key on Mac, is pressed
+         */
+        public Boolean getShortKey() {
+            return shortKey;
+        }
+
+        /**
+         * Gets the shift key modifier.
+         *
+         * @return whether the shift key is pressed
+         */
+        public Boolean getShiftKey() {
+            return shiftKey;
+        }
+
+        /**
+         * Gets the alt key modifier.
+         *
+         * @return whether the alt key is pressed
+         */
+        public Boolean getAltKey() {
+            return altKey;
+        }
+
+        String getId() {
+            return (button == null ? "" : button.getButtonName()) + ":"
+                    + keyCode + ":" + shortKey + ":" + shiftKey + ":"
+                    + altKey;
+        }
+
+        JsonObject toJson() {
+            JsonObject json = Json.createObject();
+            json.put("id", getId());
+            if (button != null) {
+                json.put("button", button.getButtonName());
+            }
+            json.put("key", keyCode);
+            putModifier(json, "shortKey", shortKey);
+            putModifier(json, "shiftKey", shiftKey);
+            putModifier(json, "altKey", altKey);
+            return json;
+        }
+
+        private static void putModifier(JsonObject json, String key,
+                Boolean value) {
+            if (value == null) {
+                json.put(key, Json.createNull());
+            } else {
+                json.put(key, value);
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Shortcut)) {
+                return false;
+            }
+            Shortcut other = (Shortcut) obj;
+            return button == other.button && keyCode == other.keyCode
+                    && Objects.equals(shortKey, other.shortKey)
+                    && Objects.equals(shiftKey, other.shiftKey)
+                    && Objects.equals(altKey, other.altKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(button, keyCode, shortKey, shiftKey, altKey);
+        }
+    }
+}
@@ -55,6 +55,40 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
     SILENT: 'silent'
   };
 
+  /**
+   * Placeholder catalogs shared by the editors of the page, by catalog id. Each one holds the placeholders
+   * by id, its version and the editors showing it.
+   */
+  const PLACEHOLDER_CATALOGS = {};
+
+  const getPlaceholderCatalog = id =>
+    PLACEHOLDER_CATALOGS[id] || (PLACEHOLDER_CATALOGS[id] = { version: -1, items: new Map(), editors: new Set() });
+
+  const placeholderId = placeholder => (placeholder.id != null ? placeholder.id : placeholder.text);
+
+  /*
+   * Readonly ranges are kept as sorted, disjoint `[start, end]` pairs of editor positions.
+   */
+  const addRange = (ranges, start, end) => {
+    const result = [];
+    ranges.forEach(([s, e]) => {
+      if (e < start || s > end) {
+        result.push([s, e]);
+      } else {
+        start = Math.min(start, s);
+        end = Math.max(end, e);
+      }
+    });
+    result.push([start, end]);
+    return result.sort((a, b) => a[0] - b[0]);
+  };
+
+  const removeRange = (ranges, start, end) =>
+    ranges.flatMap(([s, e]) =>
+      e <= start || s >= end ? [[s, e]] : [...(s < start ? [[s, start]] : []), ...(e > end ? [[end, e]] : [])]);
+
+  const opLength = op => (typeof op.insert === 'string' ? op.insert.length : 1);
+
   const STATE = {
     DEFAULT: 0,
     FOCUSED: 1,
@@ -179,6 +213,12 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
             flex: auto;
           }
 
+          :host([preview]) [part='toolbar'],
+          :host([preview]) .horizontal-ruler-container,
+          :host([preview]) [part='verticalRuler'] {
+            display: none !important;
+          }
+
           .ql-readonly {
             color: #676767;
             /* background: #f9f9f9; */
@@ -391,7 +431,7 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
 
           </div>
 
-          <div style="overflow: hidden; box-sizing: content-box; width: 100% !important; height: 15px !important; flex-shrink: 0; display: [[_rulerDisplayFlexWrapper(noRulers)]];">
+          <div class="horizontal-ruler-container" style="overflow: hidden; box-sizing: content-box; width: 100% !important; height: 15px !important; flex-shrink: 0; display: [[_rulerDisplayFlexWrapper(noRulers)]];">
             <div style="overflow: hidden; box-sizing: content-box; border-color: rgb(158, 170, 182); border-style: solid; border-width: 0 1px 1px 0; width: 14px !important; height: 14px !important; display: [[_rulerDisplay(noRulers)]];"></div>
             <div style="position:relative; overflow: hidden; box-sizing: content-box; background: url('[[_rulerHori]]') repeat-x; flex-grow: 1; height: 15px !important; padding: 0; display: [[_rulerDisplay(noRulers)]];" on-click="_addTabStop" part="horizontalRuler"></div>
           </div>
@@ -462,6 +502,89 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
           value: ''
         },
 
+        /**
+         * When true, user edits are not written to `value`. Instead, the changes
+         * are sent as `value-delta` events, containing the Quill delta and the
+         * version it is based on.
+         */
+        deltaSync: {
+          type: Boolean,
+          value: false
+        },
+
+        /**
+         * How changes are synchronized to `value`: `eager` right away, `lazy` after `valueChangeTimeout`
+         * without changes, `timeout` at most once per `valueChangeTimeout`, otherwise 200 ms after the last
+         * change.
+         */
+        valueChangeMode: {
+          type: String,
+          value: 'on_change'
+        },
+
+        /**
+         * The time in milliseconds used by the `lazy` and `timeout` value change modes.
+         */
+        valueChangeTimeout: {
+          type: Number,
+          value: 400
+        },
+
+        /**
+         * When true, the time between a change and the synchronization of `value` is lengthened, up to two
+         * seconds, as the document grows or the last synchronization took longer.
+         */
+        adaptiveValueChangeTimeout: {
+          type: Boolean,
+          value: false
+        },
+
+        /**
+         * When false, no `placeholder-select` and `placeholder-leave` events are fired, for example
+         * because nobody listens to them.
+         */
+        placeholderSelectionEvents: {
+          type: Boolean,
+          value: true
+        },
+
+        /**
+         * When true, tabs are laid out only in the lines touched by a change, and lines are not laid out
+         * again while their content and the tab stops are unchanged. When false, all tabs are laid out on
+         * every change.
+         */
+        incrementalTabLayout: {
+          type: Boolean,
+          value: true
+        },
+
+        /**
+         * When set before the element is ready, it shows `previewHtml` instead of booting the editor, and
+         * activates the editor, with the caret at the clicked position, when the preview is focused.
+         */
+        deferredActivation: {
+          type: Boolean,
+          value: false
+        },
+
+        /**
+         * The server rendered HTML of the value, shown until the editor is activated.
+         */
+        previewHtml: {
+          type: String,
+          observer: '_previewHtmlChanged'
+        },
+
+        /**
+         * Version of the value, used by the delta synchronization. Set by the
+         * server whenever it replaces the value.
+         */
+        syncVersion: {
+          type: Number,
+          value: 0,
+          observer: '_syncVersionChanged'
+        },
+
         /**
          * HTML representation of the rich text editor content.
          */
@@ -471,6 +594,17 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
           readOnly: true
         },
 
+        /**
+         * Defines when `htmlValue` is updated: `always` updates it on every
+         * change, `on-demand` and `never` leave it untouched. The HTML can still
+         * be obtained on demand by calling `_getHtmlValue()`.
+         */
+        htmlValueSyncMode: {
+          type: String,
+          value: 'always',
+          observer: '_htmlValueSyncModeChanged'
+        },
+
         /**
          * When true, the user can not modify, nor copy the editor content.
          */
@@ -580,6 +714,25 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
           observer: '_placeholdersChanged'
         },
 
+        /**
+         * When true, the placeholder drop down fetches the placeholders page by page from the server,
+         * filtered there, instead of using `placeholders`.
+         */
+        lazyPlaceholders: {
+          type: Boolean,
+          value: false,
+          observer: '_lazyPlaceholdersChanged'
+        },
+
+        /**
+         * Id of a placeholder catalog shared by the editors of the page. When set, the placeholder drop down
+         * shows the placeholders of the catalog instead of `placeholders`.
+         */
+        placeholderCatalog: {
+          type: String,
+          observer: '_placeholderCatalogChanged'
+        },
+
         /**
          * Object containing `start` and `end` properties used for the start and end tags of a placeholder.
          */
@@ -622,6 +775,16 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
          */
         _oldValue: String,
 
+        /**
+         * The value the editor contents were last set from or serialized to,
+         * null if the contents changed since
+         */
+        _editorValue: String,
+
+        _hashedValue: String,
+
+        _valueHash: Number,
+
         _lastCommittedChange: {
           type: String,
           value: ''
@@ -721,8 +884,8 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
       return visible ? '' : 'none';
     }
 
-    _cleanUpLineParts() {
-      const lineParts = this.shadowRoot.querySelectorAll(LinePartBlot.tagName);
+    _cleanUpLineParts(root = this.shadowRoot) {
+      const lineParts = root.querySelectorAll(LinePartBlot.tagName);
       lineParts.forEach(line => {
         if (!line.previousElementSibling || line.previousElementSibling.nodeName != TabBlot.tagName.toUpperCase()) {
           line.style.paddingLeft = '0px';
@@ -733,9 +896,8 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
       });
     }
 
-    _simulateTabs() {
-      const allTabsConts = this.shadowRoot.querySelectorAll(TabsContBlot.tagName);
-      allTabsConts.forEach(tabsCont => {
+    _simulateTabs(tabsConts = this.shadowRoot.querySelectorAll(TabsContBlot.tagName)) {
+      tabsConts.forEach(tabsCont => {
         const tabElements = tabsCont.querySelectorAll(TabBlot.tagName);
         let tabNumber = 0;
         tabElements.forEach(tabElement => {
@@ -773,6 +935,138 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
       });
     }
 
+    /**
+     * Lays out the tabs after a change. Incrementally, only the lines touched by the delta are laid out, or
+     * all lines if there is none, skipping lines whose markup and tab stops are unchanged since their last
+     * layout. Otherwise the whole content is laid out.
+     *
+     * @param {Object|undefined} delta the change
+     */
+    _layoutTabs(delta) {
+      if (!this.incrementalTabLayout) {
+        this._cleanUpLineParts();
+        this._simulateTabs();
+        return;
+      }
+      const lines = delta && delta.ops ? this._getChangedLines(delta) : this._editor.getLines();
+      const cache = this._tabLayoutCache || (this._tabLayoutCache = new WeakMap());
+      lines.forEach(line => {
+        const node = line.domNode;
+        if (!node.querySelector(`${LinePartBlot.tagName}, ${TabBlot.tagName}`)) return;
+        const key = `${this._tabStopsVersion || 0}:${node.innerHTML}`;
+        if (cache.get(node) === key) return;
+        this._cleanUpLineParts(node);
+        if (node.nodeName === TabsContBlot.tagName.toUpperCase()) this._simulateTabs([node]);
+        // the key of the laid out line, so an unchanged line is recognized
+        cache.set(node, `${this._tabStopsVersion || 0}:${node.innerHTML}`);
+      });
+    }
+
+    /**
+     * Checks whether a change deletes content of a readonly range.
+     *
+     * @param {Object} delta the change
+     * @return {boolean} true if readonly content is deleted
+     */
+    _deletesReadonly(delta) {
+      if (!this._readonlyRanges.length) return false;
+      let index = 0;
+      return delta.ops.some(op => {
+        if (op.delete) {
+          const end = index + op.delete;
+          const deleted = this._readonlyRanges.some(([s, e]) => s < end && e > index);
+          index = end;
+          return deleted;
+        }
+        // positions of the content before the change
+        if (op.retain) index += op.retain;
+        return false;
+      });
+    }
+
+    /**
+     * Updates the index of readonly ranges from a change, so that it need not be computed from the content.
+     *
+     * @param {Object} delta the change
+     */
+    _updateReadonlyRanges(delta) {
+      let ranges = this._readonlyRanges;
+      let index = 0;
+      delta.ops.forEach(op => {
+        const readonly = op.attributes && op.attributes.readonly;
+        if (op.delete) {
+          const end = index + op.delete;
+          ranges = removeRange(ranges, index, end).map(([s, e]) => (s >= end ? [s - op.delete, e - op.delete] : [s, e]));
+        } else if (op.retain) {
+          if (readonly) ranges = addRange(ranges, index, index + op.retain);
+          else if (op.attributes && 'readonly' in op.attributes) ranges = removeRange(ranges, index, index + op.retain);
+          index += op.retain;
+        } else {
+          const length = opLength(op);
+          ranges = ranges.flatMap(([s, e]) =>
+            s >= index ? [[s + length, e + length]] : e > index ? [[s, index], [index + length, e + length]] : [[s, e]]);
+          if (readonly) ranges = addRange(ranges, index, index + length);
+          index += length;
+        }
+      });
+      this._readonlyRanges = ranges;
+    }
+
+    /**
+     * Creates the change reverting a change of the given content.
+     *
+     * @param {Object} delta the change
+     * @param {Object} base the content before the change
+     * @return {Object} the reverting change
+     */
+    _invertDelta(delta, base) {
+      const inverted = new Quill.imports.delta();
+      let index = 0;
+      delta.ops.forEach(op => {
+        if (op.delete) {
+          base.slice(index, index + op.delete).ops.forEach(baseOp => inverted.push(baseOp));
+          index += op.delete;
+        } else if (op.retain) {
+          if (op.attributes) {
+            base.slice(index, index + op.retain).ops.forEach(baseOp => {
+              const attributes = {};
+              Object.keys(op.attributes).forEach(key => {
+                const value = baseOp.attributes && baseOp.attributes[key];
+                attributes[key] = value !== undefined ? value : null;
+              });
+              inverted.retain(opLength(baseOp), attributes);
+            });
+          } else {
+            inverted.retain(op.retain);
+          }
+          index += op.retain;
+        } else {
+          inverted.delete(opLength(op));
+        }
+      });
+      return inverted;
+    }
+
+    _getChangedLines(delta) {
+      const lines = new Set();
+      // one more, for the line following an inserted or deleted line break
+      const add = (index, length) => this._editor.getLines(index, length + 1).forEach(line => lines.add(line));
+      let index = 0;
+      delta.ops.forEach(op => {
+        if (op.delete) {
+          add(index, 0);
+        } else if (op.retain) {
+          if (op.attributes) add(index, op.retain);
+          index += op.retain;
+        } else {
+          const length = opLength(op);
+          add(index, length);
+          index += length;
+        }
+      });
+      return Array.from(lines);
+    }
+
     static get observers() {
       return ['_valueChanged(value, _editor)', '_disabledChanged(disabled, readonly, _editor)', '_tabStopsChanged(tabStops, _editor)'];
     }
@@ -784,6 +1078,90 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
 
     ready() {
       super.ready();
+      if (this.deferredActivation) this._showPreview();
+      else this._activate();
+    }
+
+    /**
+     * Shows the static preview of the value instead of the editor.
+     */
+    _showPreview() {
+      const preview = document.createElement('div');
+      preview.className = 'ql-editor';
+      preview.setAttribute('part', 'preview');
+      // editable only to let the browser place the caret, which the editor takes over
+      preview.setAttribute('contenteditable', 'true');
+      preview.setAttribute('spellcheck', 'false');
+      preview.setAttribute('role', 'textbox');
+      preview.setAttribute('aria-multiline', 'true');
+      preview.addEventListener('beforeinput', e => e.preventDefault());
+      preview.addEventListener('focus', () => this._activate(true));
+      this._preview = preview;
+      this.setAttribute('preview', '');
+      this.shadowRoot.querySelector('[part="content"]').appendChild(preview);
+      this._previewHtmlChanged(this.previewHtml);
+    }
+
+    _previewHtmlChanged(html) {
+      if (this._preview) {
+        this._preview.innerHTML = html || '';
+        this._simulateTabs();
+      }
+    }
+
+    /**
+     * Gets the caret position within the preview, as the path of child indexes from the preview to the
+     * node of the caret and the offset in that node.
+     */
+    _getPreviewCaret() {
+      const preview = this._preview;
+      const selection = (this.shadowRoot.getSelection && this.shadowRoot.getSelection()) || window.getSelection();
+      if (!selection || !selection.rangeCount || !preview.contains(selection.anchorNode)) return null;
+      const path = [];
+      for (let node = selection.anchorNode; node !== preview; node = node.parentNode) {
+        path.unshift(Array.prototype.indexOf.call(node.parentNode.childNodes, node));
+      }
+      return { path, offset: selection.anchorOffset };
+    }
+
+    /**
+     * Sets the caret of the editor to the position of the preview caret, as the editor renders the value
+     * into the same markup.
+     */
+    _restorePreviewCaret(caret) {
+      let node = this._editor.root;
+      caret.path.forEach(index => (node = node && node.childNodes[index]));
+      let index = 0;
+      if (node) {
+        let offset = caret.offset;
+        if (node.nodeType !== Node.TEXT_NODE) {
+          node = node.childNodes[offset] || node;
+          offset = 0;
+        }
+        const blot = Quill.find(node, true);
+        if (blot && blot.scroll === this._editor.scroll) index = blot.offset(this._editor.scroll) + offset;
+      }
+      this._editor.focus();
+      this._editor.setSelection(Math.min(index, this._editor.getLength() - 1), 0);
+    }
+
+    /**
+     * Boots the editor. Called when the element is ready, or when the preview is focused for a deferred
+     * activation. Does nothing if the editor is active already.
+     *
+     * @param {boolean} restoreCaret whether to take over the caret of the preview
+     * @protected
+     */
+    _activate(restoreCaret = false) {
+      if (this._editor) return;
+      let caret = null;
+      const deferred = !!this._preview;
+      if (deferred) {
+        if (restoreCaret) caret = this._getPreviewCaret();
+        this._preview.remove();
+        this._preview = null;
+        this.removeAttribute('preview');
+      }
 
       const editor = this.shadowRoot.querySelector('[part="content"]');
       const toolbarConfig = this._prepareToolbar();
@@ -807,22 +1185,7 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
       this._editor = new Quill(editor, options);
       const _editor = this._editor;
 
-      this._editor.on('text-change', function(delta, oldDelta, source) {
-        if (source === 'user' && delta.ops.some(o => !!o.delete)) {
-          // Prevent user to delete a readonly Blot
-          const currentDelta = _editor.getContents().ops;
-          if (oldDelta.ops.some(v => !!v.insert && v.insert.readonly)) {
-            // There were sections in the previous value. Check for them in the new value.
-            const readonlySectionsCount = oldDelta.ops.filter(v => !!v.insert && v.insert.readonly).length;
-            const newReadonlySectionsCount = currentDelta.filter(v => !!v.insert && v.insert.readonly).length;
-
-            if (readonlySectionsCount != newReadonlySectionsCount) {
-              _editor.setContents(oldDelta);
-              _editor.setSelection(delta.ops[0].retain + 1, 0);
-            }
-          }
-        }
-      });
+      this._readonlyRanges = [];
 
       this._patchToolbar();
       this._patchKeyboard();
@@ -841,17 +1204,38 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
       editorContent.setAttribute('role', 'textbox');
       editorContent.setAttribute('aria-multiline', 'true');
 
-      this._editor.on('text-change', () => {
-        const timeout = 200;
-        this._debounceSetValue = Debouncer.debounce(this._debounceSetValue, timeOut.after(timeout), () => {
-          if (!this._silentTextChange) this.value = JSON.stringify(this._editor.getContents().ops);
+      this._editor.on('editor-change', (eventName, delta, oldDelta, source) => {
+        // also fired for silent changes, unlike text-change
+        if (eventName !== 'text-change') return;
+        this._editorValue = null;
+        // Prevent user to delete a readonly Blot, the change is reverted after the text-change listeners
+        this._readonlyViolation = source === SOURCE.USER && this._deletesReadonly(delta);
+        this._updateReadonlyRanges(delta);
+      });
+
+      this._editor.on('text-change', delta => {
+        if (this.deltaSync && delta) {
+          this._pendingDelta = this._pendingDelta ? this._pendingDelta.compose(delta) : delta;
+        }
+        // in timeout mode, a pending synchronization is not postponed by further changes
+        if (this.valueChangeMode === 'timeout' && this._debounceSetValue && this._debounceSetValue.isActive()) return;
+        this._debounceSetValue = Debouncer.debounce(this._debounceSetValue, timeOut.after(this._valueSyncTimeout()), () => {
+          const start = performance.now();
+          if (this.deltaSync) this._flushPendingDelta();
+          else if (!this._silentTextChange) this._serializeContents();
           this._silentTextChange = false;
+          this._valueSyncTime = performance.now() - start;
         });
       });
 
-      this._editor.on('text-change', () => {
-        this._cleanUpLineParts();
-        this._simulateTabs();
+      this._editor.on('text-change', delta => this._layoutTabs(delta));
+
+      this._editor.on('text-change', (delta, oldDelta) => {
+        if (this._readonlyViolation) {
+          this._readonlyViolation = false;
+          _editor.updateContents(this._invertDelta(delta, oldDelta));
+          _editor.setSelection((delta.ops[0].retain || 0) + 1, 0);
+        }
       });
 
       editorContent.addEventListener('focusout', () => {
@@ -883,14 +1267,16 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
               this.$.placeholderBtn.classList.add('ql-active');
               this.$.placeholderBtn.setAttribute('on', true);
               const detail = { placeholders };
-              this.dispatchEvent(new CustomEvent('placeholder-select', { bubbles: true, cancelable: false, detail }));
+              if (this.placeholderSelectionEvents) {
+                this.dispatchEvent(new CustomEvent('placeholder-select', { bubbles: true, cancelable: false, detail }));
+              }
             } else {
               if (this._inPlaceholder === true) this._inPlaceholder = false;
               this.$.placeholderBtn.classList.remove('ql-active');
               this.$.placeholderBtn.removeAttribute('on');
             }
             if (this._inPlaceholder === false) {
-              this.dispatchEvent(new CustomEvent('placeholder-leave', { bubbles: true }));
+              if (this.placeholderSelectionEvents) this.dispatchEvent(new CustomEvent('placeholder-leave', { bubbles: true }));
               delete this._inPlaceholder;
             }
           });
@@ -925,7 +1311,43 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
         return delta;
       });
 
+      // Pasted and dropped images go through the same upload as toolbar images
+      this._editor.clipboard.addMatcher('img', (node, delta) => {
+        const src = node.getAttribute('src') || '';
+        if (src.startsWith('data:') && this._canUploadImages()) {
+          this._uploadPastedImage(src);
+        }
+        return delta;
+      });
+      ['paste', 'drop'].forEach(type =>
+        this._editor.root.addEventListener(type, e => this._onImageFilesTransfer(e), true)
+      );
+
       this._ready = true;
+
+      if (deferred) {
+        const pending = this._pendingActivation || [];
+        this._pendingActivation = null;
+        pending.forEach(call => call());
+        this.dispatchEvent(new CustomEvent('editor-activated', { bubbles: true, cancelable: false }));
+        if (caret) this._restorePreviewCaret(caret);
+      }
+    }
+
+    /**
+     * Runs the given function once the editor is active.
+     */
+    _whenActivated(call) {
+      if (this._editor) call();
+      else (this._pendingActivation || (this._pendingActivation = [])).push(call);
+    }
+
+    /**
+     * Focuses the editor, activating it first if needed.
+     */
+    _focusEditor() {
+      this._activate();
+      this._editor.focus();
     }
 
     _onToolbarSlotChange() {
@@ -1056,6 +1478,12 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
     connectedCallback() {
       super.connectedCallback();
       this._updateToolbarButtons();
+      if (this.placeholderCatalog) this._placeholderCatalogChanged(this.placeholderCatalog);
+    }
+
+    disconnectedCallback() {
+      super.disconnectedCallback();
+      if (this.placeholderCatalog) getPlaceholderCatalog(this.placeholderCatalog).editors.delete(this);
     }
 
     _updateToolbarButtons() {
@@ -1298,8 +1726,7 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
             let nextPlaceholder = false;
             if (sel && sel.length === 0) {
               const index = sel.index + 1;
-              const ops = this._editor.getContents(index).ops || [];
-              nextPlaceholder = ops[0].insert && ops[0].insert.placeholder;
+              nextPlaceholder = this._getPlaceholders(index, 1).length > 0;
               this._editor.setSelection(index, 1);
             }
             if (this.selectedPlaceholders.length || nextPlaceholder) this._removePlaceholders();
@@ -1441,12 +1868,132 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
     _emitChangeEvent() {
       this._debounceSetValue && this._debounceSetValue.flush();
 
-      if (this._lastCommittedChange !== this.value) {
+      if (this._lastCommittedChange !== this._committedState) {
         this.dispatchEvent(new CustomEvent('change', { bubbles: true, cancelable: false }));
-        this._lastCommittedChange = this.value;
+        this._lastCommittedChange = this._committedState;
       }
     }
 
+    get _committedState() {
+      // with delta sync, the value is not updated on edits, but the version is
+      return this.deltaSync ? this._syncVersion : this.value;
+    }
+
+    /**
+     * Gets the time between a change and the synchronization of the value, by the value change mode. When
+     * adaptive, it is lengthened by the size of the document and the time the last synchronization took.
+     *
+     * @return {number} the time in milliseconds
+     */
+    _valueSyncTimeout() {
+      const mode = this.valueChangeMode;
+      let timeout = mode === 'eager' ? 0 : mode === 'lazy' || mode === 'timeout' ? this.valueChangeTimeout : 200;
+      if (this.adaptiveValueChangeTimeout) {
+        // 1 ms per 100 characters of content, also with delta sync, and 20 times the last synchronization
+        const size = (this._editor ? this._editor.getLength() : 0) / 100;
+        timeout = Math.max(timeout, Math.min(Math.max(size, 20 * (this._valueSyncTime || 0)), 2000));
+      }
+      return timeout;
+    }
+
+    _flushPendingDelta() {
+      const delta = this._pendingDelta;
+      this._pendingDelta = null;
+      if (delta && delta.ops.length) {
+        const detail = { version: this._syncVersion++, delta: delta.ops };
+        this.dispatchEvent(new CustomEvent('value-delta', { bubbles: true, cancelable: false, detail }));
+      }
+    }
+
+    _syncVersionChanged(syncVersion) {
+      this._syncVersion = syncVersion;
+      this._pendingDelta = null;
+      if (this.deltaSync && this._editor) {
+        // the value may have been replaced on the server with the same string as before
+        this._valueChanged(this.value, this._editor);
+      }
+    }
+
+    /**
+     * Called by the server when the versions diverged. Sends the full content once.
+     * @param {number} version
+     */
+    _requestValueResync(version) {
+      this._syncVersion = version;
+      this._pendingDelta = null;
+      this._debounceSetValue && this._debounceSetValue.cancel();
+      const value = this._editor ? JSON.stringify(this._editor.getContents().ops) : this.value || '';
+      const detail = { version: this._syncVersion++, value };
+      this.dispatchEvent(new CustomEvent('value-delta', { bubbles: true, cancelable: false, detail }));
+    }
+
+    _applyValueDelta(ops, baseHash) {
+      this._debounceSetValue && this._debounceSetValue.flush();
+      if (this._currentValueHash() !== baseHash) {
+        // the change is based on another value, the server sends the full value instead
+        this.dispatchEvent(new CustomEvent('value-base-mismatch', { bubbles: true, cancelable: false }));
+        return;
+      }
+      const Delta = Quill.imports.delta;
+      if (this._editor) {
+        this._editor.updateContents(new Delta(ops), SOURCE.SILENT);
+        this._editorValue = this._canonicalValue(JSON.stringify(this._editor.getContents().ops));
+        // in case we have tabstops, they will be rendered in on text-change, so we need to trigger it
+        this._editor.emitter.emit('text-change');
+        this._setServerValue(this._editorValue);
+      } else {
+        const base = new Delta(JSON.parse(this.value || '[{"insert":"\\n"}]'));
+        this._setServerValue(this._canonicalValue(JSON.stringify(base.compose(new Delta(ops)).ops)));
+      }
+    }
+
+    /**
+     * Sets a value the server already has, without notifying value-changed, so it is not sent back.
+     *
+     * @param {string} value the value
+     */
+    _setServerValue(value) {
+      this._setPendingProperty('value', value, false);
+      this._invalidateProperties();
+    }
+
+    /**
+     * Maps the empty document to the empty string, like the server does.
+     *
+     * @param {string} value the serialized contents
+     * @return {string} the value
+     */
+    _canonicalValue(value) {
+      return value === '[{"insert":"\\n"}]' ? '' : value;
+    }
+
+    _serializeContents() {
+      if (this._editorValue == null) {
+        this._editorValue = this._canonicalValue(JSON.stringify(this._editor.getContents().ops));
+      }
+      // assigning an identical string does not notify value-changed
+      this.value = this._editorValue;
+    }
+
+    _currentValueHash() {
+      const value = this.value || '';
+      if (value !== this._hashedValue) {
+        this._hashedValue = value;
+        this._valueHash = this._hash(value);
+      }
+      return this._valueHash;
+    }
+
+    _hash(value) {
+      // 32 bit FNV-1a over the UTF-16 code units, like the server calculates it
+      let hash = 0x811c9dc5 | 0;
+      for (let i = 0; i < value.length; i++) {
+        hash ^= value.charCodeAt(i);
+        hash = Math.imul(hash, 0x01000193);
+      }
+      return hash;
+    }
+
     _onReadonlyClick() {
       const range = this._getSelection();
       if (range) {
@@ -1539,6 +2086,18 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
     }
 
     _updateHtmlValue() {
+      if (this.htmlValueSyncMode === 'always') {
+        this._setHtmlValue(this._getHtmlValue());
+      }
+    }
+
+    _htmlValueSyncModeChanged(mode, oldMode) {
+      if (mode === 'always' && oldMode !== undefined && this._editor) {
+        this._updateHtmlValue();
+      }
+    }
+
+    _getHtmlValue() {
       const className = 'ql-editor';
       const editor = this.shadowRoot.querySelector(`.${className}`);
       let content = editor.innerHTML;
@@ -1556,7 +2115,7 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
 
       content = content.replace(/ class=""/g, '');
 
-      this._setHtmlValue(content);
+      return content;
     }
 
     _announceFormatting() {
@@ -1633,23 +2192,97 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
       // NOTE: copied from https://github.com/quilljs/quill/blob/1.3.6/themes/base.js#L128
       // needs to be updated in case of switching to Quill 2.0.0
       if (fileInput.files != null && fileInput.files[0] != null) {
-        const reader = new FileReader();
-        reader.onload = e => {
-          const image = e.target.result;
-          const range = this._getSelection(true);
-          this._editor.updateContents(
-              new Quill.imports.delta()
-                  .retain(range.index)
-                  .delete(range.length)
-                  .insert({ image }),
-              SOURCE.USER
-          );
+        const file = fileInput.files[0];
+        const insertImage = image => {
+          this._insertImage(image);
           this._markToolbarClicked();
-          this._editor.setSelection(range.index + 1, SOURCE.SILENT);
           fileInput.value = '';
         };
-        reader.readAsDataURL(fileInput.files[0]);
+        if (this._canUploadImages()) {
+          // the server stores the image, the value only gets a reference to it
+          this._uploadImageToServer(this.getAttribute('image-upload-target'), file).then(insertImage, err => {
+            fileInput.value = '';
+            console.error('Image upload failed:', err);
+          });
+        } else {
+          const reader = new FileReader();
+          reader.onload = e => insertImage(e.target.result);
+          reader.readAsDataURL(file);
+        }
+      }
+    }
+
+    _insertImage(image) {
+      const range = this._getSelection(true);
+      this._editor.updateContents(
+          new Quill.imports.delta()
+              .retain(range.index)
+              .delete(range.length)
+              .insert({ image }),
+          SOURCE.USER
+      );
+      this._editor.setSelection(range.index + 1, SOURCE.SILENT);
+    }
+
+    _canUploadImages() {
+      return !!(this.getAttribute('image-upload-target') && this.$server);
+    }
+
+    _onImageFilesTransfer(e) {
+      const transfer = e.clipboardData || e.dataTransfer;
+      const files = Array.from((transfer && transfer.files) || []).filter(file => file.type.startsWith('image/'));
+      if (!files.length || !this._canUploadImages() || !this._editor.isEnabled()) {
+        return;
+      }
+      // the clipboard skips prevented pastes, so the files are only inserted once uploaded
+      e.preventDefault();
+      if (e.type === 'drop' && document.caretRangeFromPoint) {
+        const caret = document.caretRangeFromPoint(e.clientX, e.clientY);
+        const blot = caret && Quill.find(caret.startContainer, true);
+        if (blot) this._editor.setSelection(blot.offset(this._editor.scroll) + caret.startOffset, SOURCE.SILENT);
       }
+      files.forEach(file =>
+        this._uploadImageToServer(this.getAttribute('image-upload-target'), file)
+          .then(image => this._insertImage(image), err => console.error('Image upload failed:', err))
+      );
+    }
+
+    _uploadPastedImage(src) {
+      fetch(src)
+        .then(response => response.blob())
+        .then(blob => this._uploadImageToServer(this.getAttribute('image-upload-target'), blob))
+        .then(image => this._replaceImage(src, image), err => {
+          // an image the server rejects must not stay in the value as data URL
+          this._replaceImage(src, null);
+          console.error('Image upload failed:', err);
+        });
+    }
+
+    _replaceImage(src, image) {
+      const Delta = Quill.imports.delta;
+      this._editor.scroll.descendants(Quill.import('formats/image'))
+        .filter(blot => blot.domNode.getAttribute('src') === src)
+        .reverse()
+        .forEach(blot => {
+          const delta = new Delta().retain(this._editor.getIndex(blot)).delete(1);
+          this._editor.updateContents(image ? delta.insert({ image }) : delta, SOURCE.USER);
+        });
+    }
+
+    _uploadImageToServer(target, file) {
+      // the file name identifies the upload when asking the server for the reference
+      const uploadId = Date.now().toString(36) + Math.random().toString(36).slice(2);
+      const formData = new FormData();
+      formData.append('file', file, uploadId);
+      return fetch(target, { method: 'POST', body: formData, credentials: 'same-origin' })
+        .then(response => {
+          if (!response.ok) throw new Error('Server responded with ' + response.status);
+          return this.$server.resolveImageUpload(uploadId);
+        })
+        .then(image => {
+          if (!image) throw new Error('The image was rejected');
+          return image;
+        });
     }
 
     _disabledChanged(disabled, readonly, editor) {
@@ -1675,6 +2308,7 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
     }
 
     _tabStopsChanged(tabStops, _editor) {
+      this._tabStopsVersion = (this._tabStopsVersion || 0) + 1;
       const horizontalRuler = this.shadowRoot.querySelector('[part="horizontalRuler"]');
       if (horizontalRuler) {
         horizontalRuler.innerHTML = '';
@@ -1685,6 +2319,8 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
       });
       if (_editor) {
         _editor.emitter.emit('text-change');
+      } else if (this._preview) {
+        this._previewHtmlChanged(this.previewHtml);
       }
     }
 
@@ -1698,7 +2334,15 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
         return;
       }
 
+      if (value === this._editorValue) {
+        // an echo of the current contents, nothing to parse or compare
+        this._updateHtmlValue();
+        this._updateCommittedState();
+        return;
+      }
+
       if (value === '') {
+        this._editorValue = null;
         this._clear();
         return;
       }
@@ -1733,14 +2377,18 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
         // in case we have tabstops, they will be rendered in on text-change, so we need to trigger it
         editor.emitter.emit('text-change');
       }
+      this._editorValue = value;
       this._updateHtmlValue();
+      this._updateCommittedState();
+    }
 
+    _updateCommittedState() {
       if (this._toolbarState === STATE.CLICKED) {
         this._cleanToolbarState();
         this._emitChangeEvent();
       } else if (!this._editor.hasFocus()) {
         // value changed from outside
-        this._lastCommittedChange = this.value;
+        this._lastCommittedChange = this._committedState;
       }
     }
 
@@ -1831,25 +2479,27 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
 
     get selectedPlaceholder() {
       const range = this._getSelection();
-      let placeholder = null;
-      if (range) {
-        const op = this._editor.getContents(this._getSelection().index - 1, 1).ops[0];
-        placeholder = (op && op.insert.placeholder) || null;
-      }
-      return placeholder;
+      return (range && this._getPlaceholders(range.index - 1, 1)[0]) || null;
     }
 
     get selectedPlaceholders() {
       const range = this._getSelection();
-      const placeholders = [];
-      if (range) {
-        for (let i = range.index - 1; i < range.index + range.length; i++) {
-          const op = this._editor.getContents(i, 1).ops[0];
-          const placeholder = (op && op.insert.placeholder) || null;
-          if (placeholder) placeholders.push(placeholder);
-        }
+      return range ? this._getPlaceholders(range.index - 1, range.length + 1) : [];
+    }
+
+    /**
+     * Gets the placeholders in a range of the content. Only the blots of the range are visited.
+     *
+     * @param {number} index the start of the range
+     * @param {number} length the length of the range
+     * @return {Array} the placeholders, in document order
+     */
+    _getPlaceholders(index, length) {
+      if (index < 0) {
+        length += index;
+        index = 0;
       }
-      return placeholders;
+      return this._editor.scroll.descendants(PlaceholderBlot, index, length).map(blot => PlaceholderBlot.value(blot.domNode));
     }
 
     _getPlaceholdersInSelection(index, length) {
@@ -1912,7 +2562,9 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
     }
 
     _getPlaceholderOptions(placeholder) {
-      let placeholderOptions = this.placeholders.filter(i => i.text === placeholder)[0] || placeholder;
+      const selectedItem = this.$.placeholderComboBox.selectedItem;
+      if (this.lazyPlaceholders && selectedItem && selectedItem.text === placeholder) return { ...selectedItem };
+      let placeholderOptions = (this._catalogPlaceholders || this.placeholders || []).filter(i => i.text === placeholder)[0] || placeholder;
       if (typeof placeholderOptions === 'string') placeholderOptions = { text: placeholder };
       else if (placeholderOptions.text) placeholderOptions = { ...placeholderOptions };
       else console.error('Invalid placeholder format');
@@ -2011,15 +2663,97 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
 
     _placeholderAltAppearancePatternChanged(altAppearanceRegex) {
       PlaceholderBlot.altAppearanceRegex = altAppearanceRegex;
-      this.$.placeholderAppearanceBtn.hidden = !(this.placeholders.length && altAppearanceRegex);
+      this.$.placeholderAppearanceBtn.hidden = !((this.lazyPlaceholders || (this._catalogPlaceholders || this.placeholders).length) && altAppearanceRegex);
     }
 
     _placeholdersChanged(placeholders) {
+      if (this.lazyPlaceholders || this.placeholderCatalog) return;
+      this._showPlaceholders(placeholders);
+    }
+
+    _showPlaceholders(placeholders) {
       this.$.placeholderBtn.hidden = !placeholders.length;
       this.$.placeholderAppearanceBtn.hidden = !(placeholders.length && this.placeholderAltAppearancePattern);
       if (placeholders.length) this.$.placeholderComboBox.items = placeholders.map(placeholder => this._getPlaceholderOptions(placeholder));
     }
 
+    _lazyPlaceholdersChanged(lazy, oldLazy) {
+      const comboBox = this.$.placeholderComboBox;
+      if (lazy) {
+        this.$.placeholderBtn.hidden = false;
+        this.$.placeholderAppearanceBtn.hidden = !this.placeholderAltAppearancePattern;
+        comboBox.items = undefined;
+        comboBox.dataProvider = (params, callback) => {
+          this.$server
+            .fetchPlaceholders(params.filter, params.page * params.pageSize, params.pageSize)
+            .then(result => callback(result.items, result.size));
+        };
+      } else if (oldLazy) {
+        comboBox.dataProvider = undefined;
+        this._placeholdersChanged(this.placeholders || []);
+      }
+    }
+
+    _placeholderCatalogChanged(id, oldId) {
+      if (oldId) getPlaceholderCatalog(oldId).editors.delete(this);
+      if (id) {
+        const catalog = getPlaceholderCatalog(id);
+        catalog.editors.add(this);
+        this._catalogPlaceholders = Array.from(catalog.items.values());
+        this._showPlaceholders(this._catalogPlaceholders);
+      } else if (oldId) {
+        this._catalogPlaceholders = undefined;
+        this._placeholdersChanged(this.placeholders || []);
+      }
+    }
+
+    /**
+     * Sets the content of a shared placeholder catalog and updates the editors showing it.
+     * Called by the server once per page for each catalog.
+     *
+     * @param {string} id
+     * @param {number} version
+     * @param {Array<Object>} placeholders
+     * @protected
+     */
+    static _setPlaceholderCatalog(id, version, placeholders) {
+      const catalog = getPlaceholderCatalog(id);
+      catalog.items = new Map(placeholders.map(placeholder => [placeholderId(placeholder), placeholder]));
+      catalog.version = version;
+      VcfEnhancedRichTextEditor._placeholderCatalogUpdated(catalog);
+    }
+
+    /**
+     * Applies an incremental change of a shared placeholder catalog and updates the editors showing it.
+     * Returns false, without applying the change, if the catalog is not at the version the change is
+     * based on.
+     *
+     * @param {string} id
+     * @param {number} fromVersion
+     * @param {number} version
+     * @param {Array<Object>} upserts added and changed placeholders
+     * @param {Array<string>} removedIds
+     * @return {boolean}
+     * @protected
+     */
+    static _applyPlaceholderCatalogChange(id, fromVersion, version, upserts, removedIds) {
+      const catalog = getPlaceholderCatalog(id);
+      if (catalog.version !== fromVersion) return false;
+      removedIds.forEach(removed => catalog.items.delete(removed));
+      upserts.forEach(placeholder => catalog.items.set(placeholderId(placeholder), placeholder));
+      catalog.version = version;
+      VcfEnhancedRichTextEditor._placeholderCatalogUpdated(catalog);
+      return true;
+    }
+
+    static _placeholderCatalogUpdated(catalog) {
+      const placeholders = Array.from(catalog.items.values());
+      catalog.editors.forEach(editor => {
+        editor._catalogPlaceholders = placeholders;
+        editor._showPlaceholders(placeholders);
+      });
+    }
+
     /**
      * Adds shortcut binding to a specific standard toolbar button.
      *
@@ -2028,6 +2762,7 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
      * @param {boolean} shortKey
      * @param {boolean} shiftKey
      * @param {boolean} altKey
+     * @return {Object|undefined} the added binding
      */
     addStandardButtonBinding(button, key, shortKey, shiftKey, altKey) {
       const btnTitle = this.i18n[button];
@@ -2086,17 +2821,16 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
             buttonHandler = this._editor.getModule('toolbar').handlers[button];
           }
 
+          const binding = {
+            key: key,
+            shiftKey: shiftKey,
+            shortKey: shortKey,
+            altKey: altKey,
+            handler: buttonHandler
+          };
           const bindings = keyboard.bindings[key] || [];
-          keyboard.bindings[key] = [
-            {
-              key: key,
-              shiftKey: shiftKey,
-              shortKey: shortKey,
-              altKey: altKey,
-              handler: buttonHandler
-            },
-            ...bindings
-          ];
+          keyboard.bindings[key] = [binding, ...bindings];
+          return binding;
         }
       }
     }
@@ -2108,6 +2842,7 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
      * @param {boolean} shortKey
      * @param {boolean} shiftKey
      * @param {boolean} altKey
+     * @return {Object} the added binding
      */
     addToolbarFocusBinding(key, shortKey, shiftKey, altKey) {
       const keyboard = this._editor.getModule('keyboard');
@@ -2117,17 +2852,48 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
         this._getFirstVisibleToolbarButton().focus();
       };
 
+      const binding = {
+        key: key,
+        shiftKey: shiftKey,
+        shortKey: shortKey,
+        altKey: altKey,
+        handler: focusToolbar
+      };
       const bindings = keyboard.bindings[key] || [];
-      keyboard.bindings[key] = [
-        {
-          key: key,
-          shiftKey: shiftKey,
-          shortKey: shortKey,
-          altKey: altKey,
-          handler: focusToolbar
-        },
-        ...bindings
-      ];
+      keyboard.bindings[key] = [binding, ...bindings];
+      return binding;
+    }
+
+    /**
+     * Applies a toolbar configuration sent by the server, either complete (`full`) or as the changes
+     * to the previous one: the visibility of the buttons and the shortcuts to add and remove by id.
+     *
+     * @param {Object} config
+     * @protected
+     */
+    _applyToolbarConfig(config) {
+      if (!this._editor) {
+        this._whenActivated(() => this._applyToolbarConfig(config));
+        return;
+      }
+      const shortcuts = this._toolbarConfigShortcuts || (this._toolbarConfigShortcuts = {});
+      const removed = config.full ? Object.keys(shortcuts) : config.removedShortcuts;
+      removed.forEach(id => {
+        const binding = shortcuts[id];
+        if (binding) {
+          const keyboard = this._editor.getModule('keyboard');
+          keyboard.bindings[binding.key] = (keyboard.bindings[binding.key] || []).filter(b => b !== binding);
+          delete shortcuts[id];
+        }
+      });
+      if (config.full) this.toolbarButtons = config.buttons;
+      else if (Object.keys(config.buttons).length) this.toolbarButtons = Object.assign({}, this.toolbarButtons, config.buttons);
+      config.shortcuts.forEach(s => {
+        const binding = s.button
+          ? this.addStandardButtonBinding(s.button, s.key, s.shortKey, s.shiftKey, s.altKey)
+          : this.addToolbarFocusBinding(s.key, s.shortKey, s.shiftKey, s.altKey);
+        if (binding) shortcuts[s.id] = binding;
+      });
     }
 
     _getFirstVisibleToolbarButton() {
@@ -2140,6 +2906,22 @@ Inline.order.push(PlaceholderBlot.blotName, ReadOnlyBlot.blotName, LinePartBlot.
      * @event change
      */
 
+    /**
+     * Fired instead of updating `value` when `deltaSync` is enabled.
+     *
+     * @event value-delta
+     * ```
+     * e.detail = { version: number, delta: Array } // or { version: number, value: string } on resync
+     * ```
+     */
+
+    /**
+     * Fired when a change sent by the server cannot be applied, because the
+     * value it is based on differs from the current value.
+     *
+     * @event value-base-mismatch
+     */
+
     /**
      * Fired when the user commits a value change.
      *
@@ -0,0 +1,148 @@
+/**
+ * @license
+ * Copyright (C) 2015 Vaadin Ltd.
+ * This program is available under Commercial Vaadin Add-On License 3.0 (CVALv3).
+ * See the file LICENSE.md distributed with this software for more information about licensing.
+ * See [the website]{@link https://vaadin.com/license/cval-3} for the complete license.
+ */
+
+import { html, PolymerElement } from '@polymer/polymer/polymer-element';
+import { ThemableMixin } from '@vaadin/vaadin-themable-mixin';
+import './vcf-enhanced-rich-text-editor-content-styles.js';
+
+(function() {
+  'use strict';
+
+  // same as the padding of the editor, tab stop positions include it
+  const QL_EDITOR_PADDING_LEFT = 16;
+
+  /**
+   * `<vcf-rich-text-view>` shows rich text rendered on the server, without an editor. It uses the content
+   * styles of `<vcf-enhanced-rich-text-editor>` and lays out tabs according to `tabStops` like the editor
+   * does, but creates no Quill instance, toolbar or dialogs. This makes it suitable for showing many
+   * snippets, e.g. in the cells of a grid.
+   *
+   * @memberof Vaadin
+   * @mixes Vaadin.ThemableMixin
+   */
+  class VcfRichTextView extends ThemableMixin(PolymerElement) {
+    static get template() {
+      return html`
+        <style include="vcf-enhanced-rich-text-editor-content-styles">
+          :host {
+            display: block;
+          }
+
+          :host([hidden]) {
+            display: none !important;
+          }
+
+          [part='content'] {
+            display: block;
+            overflow: visible;
+          }
+
+          .ql-editor {
+            height: auto;
+            padding: 0;
+          }
+
+          .ql-editor > * {
+            cursor: inherit;
+          }
+
+          tabs-cont {
+            display: block;
+          }
+
+          .ql-readonly {
+            color: #676767;
+            background: #f1f1f1;
+            border-radius: 0.1em;
+          }
+        </style>
+        <div part="content" class="ql-editor" id="content"></div>
+      `;
+    }
+
+    static get is() {
+      return 'vcf-rich-text-view';
+    }
+
+    static get properties() {
+      return {
+        /**
+         * The sanitized HTML to show, as rendered by the server.
+         */
+        html: {
+          type: String,
+          value: ''
+        },
+
+        /**
+         * The tab stops, like the ones of the editor. Each one has a `direction` (`left`, `right` or `middle`)
+         * and a `position` in pixels.
+         */
+        tabStops: {
+          type: Array,
+          value: () => []
+        }
+      };
+    }
+
+    static get observers() {
+      return ['_render(html, tabStops)'];
+    }
+
+    connectedCallback() {
+      super.connectedCallback();
+      // offsets are only known once attached
+      if (this.html) this._layoutTabs();
+    }
+
+    _render(html) {
+      this.$.content.innerHTML = html || '';
+      if (this.isConnected) this._layoutTabs();
+    }
+
+    _layoutTabs() {
+      const tabStops = this.tabStops || [];
+      this.$.content.querySelectorAll('tabs-cont').forEach(tabsCont => {
+        let tabNumber = 0;
+        tabsCont.querySelectorAll('tab').forEach(tabElement => {
+          let el = tabElement.nextSibling;
+          if (!el) return;
+          if (el.nodeName == '#text') {
+            const linePart = document.createElement('line-part');
+            linePart.textContent = el.wholeText;
+            el.replaceWith(linePart);
+            el = linePart;
+          }
+          tabNumber += tabElement.getAttribute('level') ? parseInt(tabElement.getAttribute('level')) : 1;
+          const tabInfo = tabStops[tabNumber - 1];
+          if (tabInfo) {
+            el.style.paddingLeft = '0px';
+            let newPadding = tabInfo.position - QL_EDITOR_PADDING_LEFT - (el.offsetLeft - tabsCont.offsetLeft);
+            if (tabInfo.direction == 'right' || tabInfo.direction == 'middle') {
+              let elWidth = el.offsetWidth;
+              if (tabInfo.direction == 'middle') elWidth /= 2;
+              newPadding -= elWidth;
+            }
+            el.style.paddingLeft = Math.max(0, newPadding) + 'px';
+          } else {
+            const strTab = document.createElement('line-part');
+            strTab.textContent = String.fromCharCode(9);
+            tabElement.replaceWith(strTab);
+          }
+        });
+      });
+    }
+  }
+
+  customElements.define(VcfRichTextView.is, VcfRichTextView);
+
+  /**
+   * @namespace Vaadin
+   */
+  window.Vaadin.VcfRichTextView = VcfRichTextView;
+})();
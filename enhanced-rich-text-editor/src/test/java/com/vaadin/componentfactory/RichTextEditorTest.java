@@ -2,10 +2,66 @@ package com.vaadin.componentfactory;
 
 import static org.junit.Assert.assertEquals;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListResourceBundle;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import javax.imageio.ImageIO;
+
+import org.jsoup.safety.Safelist;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import com.vaadin.componentfactory.EnhancedRichTextEditor.RichTextEditorI18n;
+import com.vaadin.componentfactory.EnhancedRichTextEditor.ToolbarButton;
+import com.vaadin.componentfactory.GeneratedEnhancedRichTextEditor.PlaceholderBeforeInsertEvent;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.data.provider.ListDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.renderer.LitRenderer;
+import com.vaadin.flow.data.value.HasValueChangeMode;
+import com.vaadin.flow.data.value.ValueChangeMode;
+import com.vaadin.flow.dom.DomEvent;
+import com.vaadin.flow.internal.nodefeature.ElementListenerMap;
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinResponse;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.communication.streaming.StreamingEndEventImpl;
+import com.vaadin.flow.server.communication.streaming.StreamingErrorEventImpl;
+import com.vaadin.flow.server.communication.streaming.StreamingStartEventImpl;
+import com.vaadin.flow.shared.Registration;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
 
 /**
  * Tests for the {@link EnhancedRichTextEditor}.
@@ -15,6 +71,9 @@ public class RichTextEditorTest {
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void setValueNull() {
         EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
@@ -34,6 +93,994 @@ public class RichTextEditorTest {
                 rte.getElement().getProperty("value"));
     }
 
+    // Value change mode
+
+    @Test
+    public void setValueChangeMode_timingSentToClient() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Assert.assertEquals("on_change",
+                rte.getElement().getProperty("valueChangeMode"));
+        Assert.assertEquals(HasValueChangeMode.DEFAULT_CHANGE_TIMEOUT,
+                rte.getValueChangeTimeout());
+
+        rte.setValueChangeMode(ValueChangeMode.LAZY);
+        rte.setValueChangeTimeout(1000);
+        rte.setAdaptiveValueChangeTimeout(true);
+
+        Assert.assertEquals("lazy",
+                rte.getElement().getProperty("valueChangeMode"));
+        Assert.assertEquals(1000, rte.getValueChangeTimeout());
+        Assert.assertEquals(1000,
+                rte.getElement().getProperty("valueChangeTimeout", 0));
+        Assert.assertTrue(rte.isAdaptiveValueChangeTimeout());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setValueChangeTimeout_negativeThrows() {
+        new EnhancedRichTextEditor().setValueChangeTimeout(-1);
+    }
+
+    // Delta synchronization
+
+    @Test
+    public void setValue_attached_sendsChangeAndTakesOverStaleClientValue() {
+        UI ui = new UI();
+        ui.getInternals().setSession(new VaadinSession(null) {
+            @Override
+            public boolean hasLock() {
+                return true;
+            }
+        });
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        ui.add(rte);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append("Line ").append(i).append("\\n");
+        }
+        String original = "[{\"insert\":\"" + text + "\"}]";
+        rte.setValue(original);
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+
+        rte.setValue("[{\"insert\":\"X" + text + "\"}]");
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        List<Object> parameters = ui.getInternals()
+                .dumpPendingJavaScriptInvocations().stream()
+                .map(invocation -> invocation.getInvocation())
+                .filter(invocation -> invocation.getExpression()
+                        .contains("_applyValueDelta"))
+                .findFirst().get().getParameters();
+        // the client applies the change only to the value it is based on
+        Assert.assertEquals(DeltaOps.hash(original),
+                ((Number) parameters.get(2)).intValue());
+        Assert.assertEquals(original, rte.getElement().getProperty("value"));
+
+        // the user restored the original content, which equals the
+        // property, so only the event arrives
+        rte.getElement().getNode().getFeature(ElementListenerMap.class)
+                .fireEvent(new DomEvent(rte.getElement(), "change",
+                        Json.createObject()));
+        Assert.assertEquals(original, rte.getValue());
+    }
+
+    @Test
+    public void composeDelta_insertIntoText() {
+        JsonArray result = DeltaOps.compose(
+                DeltaOps.parse("[{\"insert\":\"Hello World\\n\"}]"),
+                Json.instance().parse("[{\"retain\":5},{\"insert\":\",\"}]"));
+        Assert.assertEquals("Hello, World\n",
+                result.getObject(0).getString("insert"));
+        Assert.assertEquals(1, result.length());
+    }
+
+    @Test
+    public void composeDelta_deleteAndFormat() {
+        JsonArray result = DeltaOps.compose(
+                DeltaOps.parse("[{\"insert\":\"Hello World\\n\"}]"),
+                Json.instance().parse("[{\"delete\":6},{\"retain\":5,"
+                        + "\"attributes\":{\"bold\":true}}]"));
+        Assert.assertEquals(
+                "[{\"insert\":\"World\",\"attributes\":{\"bold\":true}},"
+                        + "{\"insert\":\"\\n\"}]",
+                result.toJson());
+    }
+
+    @Test
+    public void composeDelta_embedsAndRemovedAttributes() {
+        JsonArray result = DeltaOps.compose(
+                Json.instance().parse("[{\"insert\":\"A\",\"attributes\":{\"bold\":true}},"
+                        + "{\"insert\":{\"image\":\"x.png\"}},"
+                        + "{\"insert\":\"\\n\"}]"),
+                Json.instance().parse("[{\"retain\":1,\"attributes\":{\"bold\":null}},"
+                        + "{\"delete\":1}]"));
+        Assert.assertEquals("[{\"insert\":\"A\\n\"}]", result.toJson());
+    }
+
+    @Test
+    public void composeDelta_emptyDocumentMapsToEmptyValue() {
+        JsonArray result = DeltaOps.compose(
+                DeltaOps.parse("[{\"insert\":\"A\\n\"}]"),
+                Json.instance().parse("[{\"delete\":1}]"));
+        Assert.assertEquals("", DeltaOps.toValue(result));
+    }
+
+    @Test
+    public void setDeltaSync_propertyAndVersionUpdated() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        rte.setDeltaSync(true);
+        Assert.assertTrue(rte.getElement().getProperty("deltaSync", false));
+        int version = rte.getElement().getProperty("syncVersion", 0);
+        rte.setValue("[{\"insert\":\"A\\n\"}]");
+        Assert.assertEquals(version + 1,
+                rte.getElement().getProperty("syncVersion", 0));
+    }
+
+    @Test
+    public void diffDelta_onlyModifiedRangeReplaced() {
+        String from = "[{\"insert\":\"Hello \"},{\"insert\":\"big\",\"attributes\":{\"bold\":true}},"
+                + "{\"insert\":\" World\\n\"}]";
+        String to = "[{\"insert\":\"Hello \"},{\"insert\":\"bag\",\"attributes\":{\"bold\":true}},"
+                + "{\"insert\":{\"image\":\"i.png\"}},{\"insert\":\" World\\n\"}]";
+        JsonArray change = DeltaOps.diff(DeltaOps.parse(from),
+                DeltaOps.parse(to));
+        Assert.assertEquals("[{\"retain\":7},{\"insert\":\"ag\",\"attributes\":{\"bold\":true}},"
+                + "{\"insert\":{\"image\":\"i.png\"}},{\"delete\":2}]",
+                change.toJson());
+        Assert.assertEquals(to, DeltaOps.toValue(
+                DeltaOps.compose(DeltaOps.parse(from), change)));
+        Assert.assertEquals(0, DeltaOps.diff(DeltaOps.parse(to),
+                DeltaOps.parse(to)).length());
+    }
+
+    /**
+     * Values are compared with {@code String.equals}, like Flow does by
+     * default. The hash of a value only identifies the value a change sent
+     * to the client is based on.
+     */
+    @Test
+    public void setValue_identicalContentDoesNotFireEvent() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        rte.setValue("[{\"insert\":\"A\\n\"}]");
+        List<String> values = new ArrayList<>();
+        rte.addValueChangeListener(event -> values.add(event.getValue()));
+        rte.setValue(new String("[{\"insert\":\"A\\n\"}]"));
+        Assert.assertTrue(values.isEmpty());
+        rte.setValue("[{\"insert\":\"B\\n\"}]");
+        Assert.assertEquals(1, values.size());
+    }
+
+    @Test
+    public void hashValue_matchesFnv1a() {
+        Assert.assertEquals(0x811c9dc5, DeltaOps.hash(""));
+        Assert.assertEquals(0xe40c292c, DeltaOps.hash("a"));
+    }
+
+    // Delta model
+
+    @Test
+    public void parseDelta_textEmbedsAndAttributes() {
+        String value = "[{\"insert\":\"Hi\",\"attributes\":{\"bold\":true}},"
+                + "{\"insert\":\"\\ufeff\",\"attributes\":{\"tab\":\"1\"}},"
+                + "{\"insert\":{\"placeholder\":{\"text\":\"N-1\"}}},"
+                + "{\"insert\":\"!\",\"attributes\":{\"bold\":true}},"
+                + "{\"insert\":\"\\n\"}]";
+        Delta delta = Delta.parse(value);
+        Assert.assertEquals(5, delta.getOps().size());
+        Assert.assertEquals(6, delta.length());
+        Op first = delta.getOps().get(0);
+        Assert.assertEquals("Hi", first.getText());
+        Assert.assertEquals(Boolean.TRUE, first.getAttribute("bold"));
+        Assert.assertSame(first.getAttributes(),
+                delta.getOps().get(3).getAttributes());
+        Assert.assertTrue(delta.getOps().get(1).isTab());
+        Op placeholder = delta.getOps().get(2);
+        Assert.assertEquals("placeholder", placeholder.getEmbedType());
+        Assert.assertNull(placeholder.getText());
+        Assert.assertEquals(value, delta.toValue());
+    }
+
+    @Test
+    public void getDelta_cachedPerValue() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Assert.assertEquals(new Delta(Op.insert("\n")), rte.getDelta());
+        rte.setValue("[{\"insert\":\"A\\n\"}]");
+        Delta delta = rte.getDelta();
+        Assert.assertEquals("A\n", delta.getOps().get(0).getText());
+        Assert.assertSame(delta, rte.getDelta());
+    }
+
+    @Test
+    public void setDelta_valueUpdated() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Delta delta = new Delta(Op.insert("A"),
+                Op.insert("B", Collections.singletonMap("italic", true)),
+                Op.insert("\n"));
+        rte.setDelta(delta);
+        Assert.assertEquals(
+                "[{\"insert\":\"A\"},{\"insert\":\"B\",\"attributes\":{\"italic\":true}},{\"insert\":\"\\n\"}]",
+                rte.getValue());
+        Assert.assertSame(delta, rte.getDelta());
+        rte.setDelta(new Delta(Op.insert("\n")));
+        Assert.assertEquals("", rte.getValue());
+    }
+
+    @Test
+    public void readDelta_opsReadOneByOne() {
+        DeltaReader reader = new DeltaReader(" [ {\"insert\":\"a\\\"\\u00e4\","
+                + "\"attributes\":{\"link\":\"x\",\"indent\":2,\"x\":{\"y\":[1]}}},"
+                + "{\"insert\":{\"image\":\"i.png\"},\"attributes\":{\"width\":\"9\"}},"
+                + "{\"retain\":3,\"attributes\":{\"bold\":null}},"
+                + "{\"delete\":2} ] ");
+        Op text = reader.next();
+        Assert.assertEquals("a\"\u00e4", text.getText());
+        Assert.assertEquals("x", text.getAttribute("link"));
+        Assert.assertEquals(2.0, text.getAttribute("indent"));
+        Assert.assertEquals("{\"y\":[1]}",
+                ((JsonValue) text.getAttribute("x")).toJson());
+        Op image = reader.next();
+        Assert.assertEquals("image", image.getEmbedType());
+        Assert.assertEquals("i.png", image.getEmbedValue().asString());
+        Op retain = reader.next();
+        Assert.assertEquals(Op.Type.RETAIN, retain.getType());
+        Assert.assertTrue(retain.getAttributes().containsKey("bold"));
+        Assert.assertEquals(Op.delete(2), reader.next());
+        Assert.assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void readDelta_emptyValueIsEmptyDocument() {
+        StringBuilder text = new StringBuilder();
+        DeltaReader.read("", op -> text.append(op.getText()));
+        Assert.assertEquals("\n", text.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readDelta_malformedValueThrows() {
+        DeltaReader.read("[{\"insert\":\"a\"", op -> {
+        });
+    }
+
+    @Test
+    public void iterateOps_readsCurrentValue() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        rte.setValue("[{\"insert\":\"A\"},{\"insert\":{\"image\":\"i.png\"}},"
+                + "{\"insert\":\"\\n\"}]");
+        StringBuilder types = new StringBuilder();
+        rte.forEachOp(op -> types.append(op.isEmbed() ? "E" : "T"));
+        Assert.assertEquals("TET", types.toString());
+        Assert.assertTrue(rte.iterateOps() instanceof DeltaReader);
+        rte.getDelta();
+        Assert.assertFalse(rte.iterateOps() instanceof DeltaReader);
+    }
+
+    // Server side HTML rendering
+
+    @Test
+    public void renderHtml_blocksAndInlineFormats() {
+        Assert.assertEquals(
+                "<h1>Title</h1><p style=\"text-align: center\"><strong><em>a</em></strong>"
+                        + " &amp; <a href=\"x\" rel=\"noopener noreferrer\" target=\"_blank\">b</a></p>"
+                        + "<ol><li>1</li><li>2</li></ol><p><br></p>",
+                DeltaHtmlRenderer.render("[{\"insert\":\"Title\"},"
+                        + "{\"insert\":\"\\n\",\"attributes\":{\"header\":1}},"
+                        + "{\"insert\":\"a\",\"attributes\":{\"bold\":true,\"italic\":true}},"
+                        + "{\"insert\":\" & \"},"
+                        + "{\"insert\":\"b\",\"attributes\":{\"link\":\"x\"}},"
+                        + "{\"insert\":\"\\n\",\"attributes\":{\"align\":\"center\"}},"
+                        + "{\"insert\":\"1\"},"
+                        + "{\"insert\":\"\\n\",\"attributes\":{\"list\":\"ordered\"}},"
+                        + "{\"insert\":\"2\"},"
+                        + "{\"insert\":\"\\n\",\"attributes\":{\"list\":\"ordered\"}},"
+                        + "{\"insert\":\"\\n\"}]"));
+    }
+
+    @Test
+    public void renderHtml_tabsReadonlyAndPlaceholders() {
+        Assert.assertEquals("<tabs-cont tabs-count=\"1\"><line-part>L</line-part>"
+                + "<tab contenteditable=\"false\" level=\"1\">\uFEFF</tab>"
+                + "<line-part><span class=\"ql-readonly\" contenteditable=\"false\">R</span></line-part>"
+                + "</tabs-cont><p><span class=\"ql-placeholder\" data-placeholder=\"{&quot;text&quot;:&quot;N-1&quot;}\">"
+                + "\uFEFF<span contenteditable=\"false\">@N-1</span>\uFEFF</span></p>",
+                DeltaHtmlRenderer.render("[{\"insert\":\"L\",\"attributes\":{\"line-part\":true}},"
+                        + "{\"insert\":\"\\uFEFF\",\"attributes\":{\"tab\":\"1\"}},"
+                        + "{\"insert\":\"R\",\"attributes\":{\"line-part\":true,\"readonly\":true}},"
+                        + "{\"insert\":\"\\n\",\"attributes\":{\"tabs-cont\":\"TABS-CONT\"}},"
+                        + "{\"insert\":{\"placeholder\":{\"text\":\"N-1\"}}},"
+                        + "{\"insert\":\"\\n\"}]"));
+    }
+
+    @Test
+    public void renderHtml_placeholderFormatsAsValidCss() {
+        String html = DeltaHtmlRenderer.render("[{\"insert\":{\"placeholder\":"
+                + "{\"text\":\"N\",\"format\":{\"underline\":true,\"strike\":true,"
+                + "\"color\":\"red\",\"unknown\":\"x\",\"background\":\"a;b\"}}}},"
+                + "{\"insert\":\"\\n\"}]");
+        Assert.assertTrue(html, html.contains("<span contenteditable=\"false\" "
+                + "style=\"color: red; text-decoration: underline line-through;\">"));
+    }
+
+    @Test
+    public void getHtmlValue_injectedInlineStylesDropped() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        rte.setValue("[{\"insert\":\"A\",\"attributes\":{\"color\":"
+                + "\"red;position:fixed;top:0;left:0;width:100%;height:100%;"
+                + "background:url(https://evil.example/t.png)\","
+                + "\"background\":\"#ff0\"}},{\"insert\":\"\\n\"}]");
+        Assert.assertEquals(
+                "<p><span style=\"background-color: #ff0;\">A</span></p>",
+                rte.getHtmlValue());
+    }
+
+    @Test
+    public void getHtmlValue_placeholderTagsAndAltAppearance() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        rte.setValue("[{\"insert\":{\"placeholder\":{\"text\":\"Name-1\","
+                + "\"altFormat\":{\"italic\":true}}}},"
+                + "{\"insert\":{\"placeholder\":{\"text\":\"Date-2\","
+                + "\"altAppearance\":true}}},{\"insert\":\"\\n\"}]");
+        Assert.assertEquals("<p><span>\uFEFF<span>@Name-1</span>\uFEFF</span>"
+                + "<span>\uFEFF<span>Date-2</span>\uFEFF</span></p>",
+                rte.getHtmlValue());
+
+        JsonObject tags = Json.createObject();
+        tags.put("start", "[");
+        tags.put("end", "]");
+        rte.getElement().setPropertyJson("placeholderTags", tags);
+        rte.setPlaceholderAltAppearancePattern("\\d+");
+        Assert.assertEquals("<p><span>\uFEFF<span>[Name-<span style=\"font-style: "
+                + "italic;\">1</span>]</span>\uFEFF</span>"
+                + "<span>\uFEFF<span><span>2</span></span>\uFEFF</span></p>",
+                rte.getHtmlValue());
+    }
+
+    @Test
+    public void getHtmlValue_renderedWithoutClient() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        rte.setValue("[{\"insert\":\"A\",\"attributes\":{\"bold\":true}},"
+                + "{\"insert\":\"\\n\"}]");
+        Assert.assertEquals("<p><strong>A</strong></p>", rte.getHtmlValue());
+        rte.setValue("");
+        Assert.assertEquals("<p><br></p>", rte.getHtmlValue());
+    }
+
+    @Test
+    public void setHtmlValueSyncMode_propertyUpdated() throws Exception {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Assert.assertEquals(EnhancedRichTextEditor.HtmlValueSyncMode.ALWAYS,
+                rte.getHtmlValueSyncMode());
+        rte.setHtmlValueSyncMode(
+                EnhancedRichTextEditor.HtmlValueSyncMode.ON_DEMAND);
+        Assert.assertEquals("on-demand",
+                rte.getElement().getProperty("htmlValueSyncMode"));
+        rte.setValue("[{\"insert\":\"A\\n\"}]");
+        Assert.assertEquals("<p>A</p>", rte.getHtmlValueAsync().get());
+    }
+
+    @Test
+    public void setSanitizerPolicy_customPolicyAppliedOncePerHtml() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Assert.assertSame(SanitizerPolicy.DEFAULT, rte.getSanitizerPolicy());
+        int[] calls = new int[1];
+        rte.setSanitizerPolicy(html -> {
+            calls[0]++;
+            return html.toUpperCase();
+        });
+        Assert.assertEquals("<B>A</B>", rte.sanitize("<b>a</b>"));
+        Assert.assertEquals("<B>A</B>", rte.sanitize(new String("<b>a</b>")));
+        Assert.assertEquals(1, calls[0]);
+        rte.setSanitizerPolicy(SanitizerPolicy.of(Safelist::none));
+        Assert.assertEquals("a", rte.sanitize("<b>a</b>"));
+    }
+
+    // Read-only view
+
+    @Test
+    public void richTextView_sanitizedHtmlKeepsTabsAndPlaceholders() {
+        String value = "[{\"insert\":\"L\",\"attributes\":{\"line-part\":true}},"
+                + "{\"insert\":\"\\uFEFF\",\"attributes\":{\"tab\":\"1\"}},"
+                + "{\"insert\":\"R\",\"attributes\":{\"link\":\"javascript:alert(1)\"}},"
+                + "{\"insert\":\"\\n\",\"attributes\":{\"tabs-cont\":\"TABS-CONT\"}},"
+                + "{\"insert\":{\"placeholder\":{\"text\":\"N-1\",\"format\":{\"bold\":true}}}},"
+                + "{\"insert\":\"\\n\"}]";
+        RichTextView view = new RichTextView(value);
+        view.setTabStops(Arrays.asList(new TabStop(TabStop.Direction.RIGHT, 150)));
+
+        String html = view.getHtml();
+        Assert.assertSame(html, new RichTextView(value).getHtml());
+        Assert.assertEquals(html, view.getElement().getProperty("html"));
+        Assert.assertEquals("<tabs-cont tabs-count=\"1\"><line-part>L</line-part>"
+                + "<tab level=\"1\">\uFEFF</tab><a rel=\"nofollow\">R</a></tabs-cont>"
+                + "<p><span class=\"ql-placeholder\">\uFEFF"
+                + "<span style=\"font-weight: bold;\">@N-1</span>\uFEFF</span></p>",
+                html);
+        Assert.assertEquals("[{\"direction\":\"right\",\"position\":150}]",
+                ((JsonValue) view.getElement().getPropertyRaw("tabStops")).toJson());
+    }
+
+    @Test
+    public void richTextView_rendererClassesOnlyAndCachedPerPolicy() {
+        String value = "[{\"insert\":\"a\"},{\"insert\":\"\\n\","
+                + "\"attributes\":{\"indent\":1}},{\"insert\":\"b\"},"
+                + "{\"insert\":\"\\n\",\"attributes\":"
+                + "{\"direction\":\"rtl admin-only\"}}]";
+        RichTextView view = new RichTextView(value);
+        Assert.assertEquals("<p class=\"ql-indent-1\">a</p><p>b</p>",
+                view.getHtml());
+
+        view.setSanitizerPolicy(SanitizerPolicy.of(Safelist::none));
+        Assert.assertEquals("ab", view.getHtml());
+        Assert.assertEquals("ab", view.getElement().getProperty("html"));
+        Assert.assertEquals("<p class=\"ql-indent-1\">a</p><p>b</p>",
+                new RichTextView(value).getHtml());
+    }
+
+    @Test
+    public void richTextView_injectedInlineStylesDropped() {
+        String value = "[{\"insert\":\"A\",\"attributes\":{\"color\":"
+                + "\"red;position:fixed;top:0;left:0;width:100%;height:100%;"
+                + "background:url(https://evil.example/t.png)\"}},"
+                + "{\"insert\":\"B\",\"attributes\":{\"color\":\"red\"}},"
+                + "{\"insert\":\"\\n\"}]";
+        RichTextView view = new RichTextView(value);
+        Assert.assertEquals("<p>A<span style=\"color: red;\">B</span></p>",
+                view.getElement().getProperty("html"));
+        UI.setCurrent(new UI());
+        try {
+            Assert.assertEquals(view.getHtml(), RichTextView
+                    .<String> createRenderer(item -> item)
+                    .getValueProviders().get("html").apply(value));
+        } finally {
+            UI.setCurrent(null);
+        }
+    }
+
+    @Test
+    public void richTextView_renderer() {
+        UI.setCurrent(new UI());
+        try {
+            LitRenderer<String> renderer = RichTextView.createRenderer(
+                    value -> value,
+                    Arrays.asList(new TabStop(TabStop.Direction.LEFT, 100)));
+            Assert.assertEquals("<p>a</p>",
+                    renderer.getValueProviders().get("html")
+                            .apply("[{\"insert\":\"a\\n\"}]"));
+
+            RichTextView view = (RichTextView) RichTextView
+                    .<String> createComponentRenderer(value -> value)
+                    .updateComponent(new RichTextView(),
+                            "[{\"insert\":\"b\\n\"}]");
+            Assert.assertEquals("<p>b</p>", view.getHtml());
+        } finally {
+            UI.setCurrent(null);
+        }
+    }
+
+    // Deferred activation
+
+    @Test
+    public void deferredActivation_previewFollowsValue() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor(
+                "[{\"insert\":\"a\\n\"}]");
+        Assert.assertNull(rte.getElement().getProperty("previewHtml"));
+
+        rte.setDeferredActivation(true);
+        Assert.assertTrue(rte.getElement().getProperty("deferredActivation",
+                false));
+        Assert.assertEquals("<p>a</p>",
+                rte.getElement().getProperty("previewHtml"));
+
+        rte.setValue("[{\"insert\":\"b\",\"attributes\":{\"bold\":true}},"
+                + "{\"insert\":\"\\n\"}]");
+        Assert.assertEquals("<p><strong>b</strong></p>",
+                rte.getElement().getProperty("previewHtml"));
+
+        rte.setDeferredActivation(false);
+        Assert.assertNull(rte.getElement().getProperty("previewHtml"));
+    }
+
+    @Test
+    public void setIncrementalTabLayout_setsProperty() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Assert.assertTrue(rte.isIncrementalTabLayout());
+        rte.setIncrementalTabLayout(false);
+        Assert.assertFalse(rte.isIncrementalTabLayout());
+        Assert.assertFalse(rte.getElement()
+                .getProperty("incrementalTabLayout", true));
+    }
+
+    // Text content
+
+    @Test
+    public void getTextLength_countsCharactersTabsAndEmbeds() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Assert.assertEquals(0, rte.getTextLength());
+        Assert.assertEquals("", rte.getPlainText());
+        rte.setValue("[{\"insert\":\"a<b\"},"
+                + "{\"insert\":\"\\uFEFF\",\"attributes\":{\"tab\":\"1\"}},"
+                + "{\"insert\":{\"placeholder\":{\"text\":\"N-1\"}}},"
+                + "{\"insert\":{\"image\":\"i.png\"}},"
+                + "{\"insert\":\"\\nc\\n\"}]");
+        Assert.assertEquals(8, rte.getTextLength());
+        Assert.assertEquals("a<b\tN-1\nc", rte.getPlainText());
+    }
+
+    @Test
+    public void getPlainText_consecutiveTabs() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        rte.setValue("[{\"insert\":\"a\"},"
+                + "{\"insert\":\"\\uFEFF\\uFEFF\",\"attributes\":{\"tab\":\"1\"}},"
+                + "{\"insert\":\"b\\n\"}]");
+        Assert.assertEquals(4, rte.getTextLength());
+        Assert.assertEquals("a\t\tb", rte.getPlainText());
+    }
+
+    // Edit transactions
+
+    @Test
+    public void editTransaction_editsAppliedAsOneChange() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        rte.setValue("[{\"insert\":\"Hello World\\n\"}]");
+        Placeholder placeholder = new Placeholder();
+        placeholder.setText("N-1");
+        int[] changes = new int[1];
+        rte.addValueChangeListener(event -> changes[0]++);
+
+        EditTransaction transaction = rte.edit().delete(5, 6)
+                .insert(5, ", ").insertPlaceholder(7, placeholder)
+                .format(0, 5, "bold", true).lockReadonly(5, 3);
+        Assert.assertEquals(8, transaction.getLength());
+        transaction.apply();
+
+        Assert.assertEquals(1, changes[0]);
+        Assert.assertEquals("[{\"insert\":\"Hello\",\"attributes\":{\"bold\":true}},"
+                + "{\"insert\":\", \",\"attributes\":{\"readonly\":true}},"
+                + "{\"insert\":{\"placeholder\":{\"text\":\"N-1\",\"format\":{},\"altFormat\":{}}},"
+                + "\"attributes\":{\"readonly\":true}},"
+                + "{\"insert\":\"\\n\"}]", rte.getValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void editTransaction_rangeOutsideContentThrows() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        rte.setValue("[{\"insert\":\"abc\\n\"}]");
+        rte.edit().insert(1, "xy").delete(3, 3);
+    }
+
+    @Test
+    public void setReadonlyRanges_replacesRangesInOneChange() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        rte.setValue("[{\"insert\":\"ab\"},"
+                + "{\"insert\":\"cd\",\"attributes\":{\"readonly\":true}},"
+                + "{\"insert\":\"efgh\\n\"}]");
+        Assert.assertEquals(Arrays.asList(new TextRange(2, 2)),
+                rte.getReadonlyRanges());
+        int[] changes = new int[1];
+        rte.addValueChangeListener(event -> changes[0]++);
+
+        rte.setReadonlyRanges(
+                Arrays.asList(new TextRange(0, 1), new TextRange(5, 2)));
+
+        Assert.assertEquals(1, changes[0]);
+        Assert.assertEquals(
+                Arrays.asList(new TextRange(0, 1), new TextRange(5, 2)),
+                rte.getReadonlyRanges());
+        Assert.assertEquals("[{\"insert\":\"a\",\"attributes\":{\"readonly\":true}},"
+                + "{\"insert\":\"bcde\"},"
+                + "{\"insert\":\"fg\",\"attributes\":{\"readonly\":true}},"
+                + "{\"insert\":\"h\\n\"}]", rte.getValue());
+    }
+
+    // Placeholders
+
+    @Test
+    public void placeholderSelectionEvents_onlyWhileListened() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Assert.assertFalse(rte.getElement()
+                .getProperty("placeholderSelectionEvents", true));
+        Registration selected = rte.addPlaceholderSelectedListener(e -> {
+        });
+        Registration leave = rte.addPlaceholderLeaveListener(e -> {
+        });
+        Assert.assertTrue(rte.getElement()
+                .getProperty("placeholderSelectionEvents", false));
+        selected.remove();
+        Assert.assertTrue(rte.getElement()
+                .getProperty("placeholderSelectionEvents", false));
+        leave.remove();
+        Assert.assertFalse(rte.getElement()
+                .getProperty("placeholderSelectionEvents", true));
+    }
+
+    @Test
+    public void placeholderEvent_resolvedById() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Placeholder first = new Placeholder();
+        first.setId("customer.name");
+        first.setText("Name");
+        Placeholder second = new Placeholder();
+        second.setText("Date");
+        rte.setPlaceholders(Arrays.asList(first, second));
+
+        Assert.assertSame(first, rte.getPlaceholder("customer.name"));
+        Assert.assertSame(second, rte.getPlaceholder("Date"));
+        Assert.assertNull(rte.getPlaceholder("Name"));
+
+        JsonObject detail = Json.createObject();
+        // the text of the occurrence in the document is outdated
+        detail.put("placeholders", Json.instance().<JsonArray> parse("[{\"placeholder\":"
+                + "{\"id\":\"customer.name\",\"text\":\"Customer\"},\"index\":3},"
+                + "{\"text\":\"Date\"}]"));
+        List<Placeholder> placeholders = new PlaceholderBeforeInsertEvent<>(
+                rte, true, null, detail).getPlaceholders();
+        // a copy carries the index, the known placeholder may be shared
+        Assert.assertEquals("customer.name", placeholders.get(0).getId());
+        Assert.assertEquals("Name", placeholders.get(0).getText());
+        Assert.assertEquals(3, placeholders.get(0).getIndex());
+        Assert.assertEquals(-1, first.getIndex());
+        Assert.assertSame(second, placeholders.get(1));
+    }
+
+    @Test
+    public void placeholderEvent_catalogPlaceholdersNotModified() {
+        Placeholder name = new Placeholder();
+        name.setId("n");
+        name.setText("Name");
+        PlaceholderCatalog catalog = new PlaceholderCatalog(
+                Collections.singletonList(name));
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        rte.setPlaceholderCatalog(catalog);
+
+        JsonObject detail = Json.createObject();
+        detail.put("placeholders", Json.instance().<JsonArray> parse("[{\"placeholder\":"
+                + "{\"id\":\"n\",\"text\":\"Name\"},\"index\":7},"
+                + "{\"placeholder\":{\"id\":\"gone\",\"text\":\"Gone\"},"
+                + "\"index\":2}]"));
+        List<Placeholder> placeholders = new PlaceholderBeforeInsertEvent<>(
+                rte, true, null, detail).getPlaceholders();
+        Assert.assertEquals(7, placeholders.get(0).getIndex());
+        Assert.assertEquals(-1, catalog.getPlaceholder("n").getIndex());
+        // removed from the catalog meanwhile
+        Assert.assertEquals("Gone", placeholders.get(1).getText());
+        Assert.assertEquals(2, placeholders.get(1).getIndex());
+    }
+
+    @Test
+    public void placeholderJson_idOnlyWrittenIfSet() {
+        Placeholder placeholder = new Placeholder();
+        placeholder.setText("Name");
+        Assert.assertFalse(placeholder.toJson().hasKey("id"));
+        placeholder.setId("n");
+        Placeholder read = new Placeholder(placeholder.toJson());
+        Assert.assertEquals("n", read.getId());
+        Assert.assertEquals("Name", read.getText());
+    }
+
+    @Test
+    public void getPlaceholders_cachedUntilPropertyChanges() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Placeholder placeholder = new Placeholder();
+        placeholder.setText("Name");
+        List<Collection<Placeholder>> events = new ArrayList<>();
+        rte.addPlaceholdersChangedListener(
+                event -> events.add(event.getPlaceholders()));
+        rte.setPlaceholders(Collections.singletonList(placeholder));
+
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals("Name",
+                events.get(0).iterator().next().getText());
+        Assert.assertSame(rte.getPlaceholders().iterator().next(),
+                rte.getPlaceholders().iterator().next());
+    }
+
+    @Test
+    public void placeholderDataProvider_prefixMatchesFirst() {
+        List<Placeholder> catalog = new ArrayList<>();
+        for (String text : Arrays.asList("Order date", "Name", "Last name",
+                "Customer name", "Date", "Named day")) {
+            Placeholder placeholder = new Placeholder();
+            placeholder.setText(text);
+            catalog.add(placeholder);
+        }
+        PlaceholderDataProvider provider = new PlaceholderDataProvider(
+                catalog);
+
+        Assert.assertEquals(Arrays.asList("Name", "Named day",
+                "Customer name", "Last name"), texts(provider, "na", 0, 10));
+        Assert.assertEquals(Arrays.asList("Named day"),
+                texts(provider, "NAMED", 0, 10));
+        Assert.assertEquals(Arrays.asList("Customer name", "Last name"),
+                texts(provider, "na", 2, 2));
+        Assert.assertEquals(Arrays.asList("Date", "Order date"),
+                texts(provider, "date", 0, 10));
+        // narrowed from the cached match of "na", not the last one
+        Assert.assertEquals(Arrays.asList("Name", "Named day",
+                "Customer name", "Last name"), texts(provider, "nam", 0, 10));
+        Assert.assertEquals(6, provider.size(new Query<>()));
+        Assert.assertEquals(4, provider.size(new Query<>("na")));
+        Assert.assertSame(catalog.get(1), provider.getPlaceholder("Name"));
+    }
+
+    @Test
+    public void setPlaceholderDataProvider_catalogNotSent() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Placeholder placeholder = new Placeholder();
+        placeholder.setText("Name");
+        rte.setPlaceholderDataProvider(new PlaceholderDataProvider(
+                Collections.singletonList(placeholder)));
+
+        Assert.assertTrue(
+                rte.getElement().getProperty("lazyPlaceholders", false));
+        Assert.assertTrue(rte.getPlaceholders().isEmpty());
+        Assert.assertSame(placeholder, rte.getPlaceholder("Name"));
+
+        rte.setPlaceholders(Collections.singletonList(placeholder));
+        Assert.assertFalse(
+                rte.getElement().getProperty("lazyPlaceholders", true));
+        Assert.assertNull(rte.getPlaceholderDataProvider());
+    }
+
+    @Test
+    public void setPlaceholderDataProvider_unfetchedPlaceholderResolved() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Placeholder placeholder = new Placeholder();
+        placeholder.setText("Name");
+        rte.setPlaceholderDataProvider(
+                new ListDataProvider<>(Collections.singletonList(placeholder))
+                        .withConvertedFilter(filter -> p -> p.getText()
+                                .contains(filter)));
+
+        Placeholder fromClient = new Placeholder();
+        fromClient.setText("Name");
+        Assert.assertNull(rte.getPlaceholder("Name"));
+        Assert.assertSame(placeholder, rte.getPlaceholder(fromClient));
+        Assert.assertSame(placeholder, rte.getPlaceholder("Name"));
+    }
+
+    private static List<String> texts(PlaceholderDataProvider provider,
+            String filter, int offset, int limit) {
+        return provider.fetch(new Query<>(offset, limit, null, null, filter))
+                .map(Placeholder::getText).collect(Collectors.toList());
+    }
+
+    @Test
+    public void placeholderMerger_rowsMergedInAllFormats() throws IOException {
+        PlaceholderMerger merger = PlaceholderMerger.compile("[{\"insert\":\"Dear \"},"
+                + "{\"insert\":{\"placeholder\":{\"id\":\"name\",\"text\":\"N-1\","
+                + "\"format\":{\"bold\":true},\"altFormat\":{\"italic\":true}}},"
+                + "\"attributes\":{\"underline\":true}},"
+                + "{\"insert\":\",\\n\"}]");
+        Assert.assertEquals(Collections.singleton("name"),
+                merger.getPlaceholderIds());
+        Map<String, Object> row = Collections.singletonMap("name", "Ann <3");
+
+        Assert.assertEquals("[{\"insert\":\"Dear \"},{\"insert\":\"Ann <3\","
+                + "\"attributes\":{\"underline\":true,\"bold\":true}},"
+                + "{\"insert\":\",\\n\"}]",
+                merger.merge(row, PlaceholderMerger.Format.DELTA));
+        Assert.assertEquals(
+                Delta.parse(merger.merge(row, PlaceholderMerger.Format.DELTA)),
+                merger.merge(row));
+        Assert.assertEquals("<p>Dear <strong><u>Ann &lt;3</u></strong>,</p>",
+                merger.merge(row, PlaceholderMerger.Format.HTML));
+        Assert.assertEquals("Dear Ann <3,",
+                merger.merge(row, PlaceholderMerger.Format.TEXT));
+        Assert.assertEquals("Dear N-1,", merger.merge(Collections.emptyMap(),
+                PlaceholderMerger.Format.TEXT));
+
+        PlaceholderMerger linked = PlaceholderMerger.compile("[{\"insert\":"
+                + "{\"placeholder\":{\"id\":\"name\",\"text\":\"N-1\"}},"
+                + "\"attributes\":{\"link\":\"javascript:alert(1)\"}},"
+                + "{\"insert\":\"\\n\"}]");
+        Assert.assertEquals("<p><a rel=\"nofollow\">Ann &lt;3</a></p>",
+                linked.merge(row, PlaceholderMerger.Format.HTML));
+        Assert.assertEquals("Ann &lt;3",
+                linked.withSanitizerPolicy(SanitizerPolicy.of(Safelist::none))
+                        .merge(row, PlaceholderMerger.Format.HTML));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rows.add(Collections.singletonMap("name", "#" + i));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        merger.mergeAll(rows, PlaceholderMerger.Format.TEXT, out, "|");
+        String[] letters = out.toString(StandardCharsets.UTF_8).split("\\|");
+        Assert.assertEquals(100, letters.length);
+        Assert.assertEquals("Dear #57,", letters[57]);
+    }
+
+    @Test
+    public void placeholderCatalog_incrementalChanges() {
+        Placeholder name = new Placeholder();
+        name.setId("name");
+        name.setText("Name");
+        Placeholder date = new Placeholder();
+        date.setText("Date");
+        PlaceholderCatalog catalog = new PlaceholderCatalog(
+                Arrays.asList(name, date));
+        List<PlaceholderCatalog.ChangeEvent> events = new ArrayList<>();
+        catalog.addChangeListener(events::add);
+
+        name.setText("Customer");
+        Assert.assertEquals("Name", catalog.getPlaceholder("name").getText());
+
+        Placeholder city = new Placeholder();
+        city.setText("City");
+        catalog.put(name, city, date);
+        catalog.remove("Date", "unknown");
+        catalog.replaceAll(Arrays.asList(name, city));
+
+        Assert.assertEquals(2, events.size());
+        PlaceholderCatalog.ChangeEvent put = events.get(0);
+        Assert.assertEquals(1, put.getFromVersion());
+        Assert.assertEquals(2, put.getToVersion());
+        Assert.assertEquals("City", put.getAdded().get(0).getText());
+        Assert.assertEquals("Customer", put.getChanged().get(0).getText());
+        Assert.assertEquals(Arrays.asList("Date"),
+                events.get(1).getRemovedIds());
+        Assert.assertEquals(3, catalog.getVersion());
+        Assert.assertEquals(Arrays.asList("Customer", "City"),
+                catalog.getPlaceholders().stream().map(Placeholder::getText)
+                        .collect(Collectors.toList()));
+
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        rte.setPlaceholderCatalog(catalog);
+        Assert.assertEquals("Customer", rte.getPlaceholder("name").getText());
+        Assert.assertNull(rte.getPlaceholder("Date"));
+        rte.setPlaceholders(Arrays.asList(date));
+        Assert.assertNull(rte.getPlaceholderCatalog());
+        Assert.assertSame(date, rte.getPlaceholder("Date"));
+    }
+
+    @Test
+    public void placeholderCatalog_resolvedByNameAndNotifiedUnlocked()
+            throws Exception {
+        Placeholder name = new Placeholder();
+        name.setText("Name");
+        PlaceholderCatalog catalog = new PlaceholderCatalog("letters",
+                Collections.singletonList(name));
+        Assert.assertEquals("letters", catalog.getName());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(catalog);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assert.assertSame(catalog, in.readObject());
+        }
+
+        // a listener may wait for another thread modifying the catalog
+        Placeholder date = new Placeholder();
+        date.setText("Date");
+        Thread[] modifier = new Thread[1];
+        catalog.addChangeListener(event -> {
+            if (modifier[0] == null) {
+                modifier[0] = new Thread(() -> catalog.put(date));
+                modifier[0].start();
+                try {
+                    modifier[0].join(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        catalog.remove("Name");
+        Assert.assertFalse(modifier[0].isAlive());
+        Assert.assertEquals(3, catalog.getVersion());
+    }
+
+    // Tab stops
+
+    @Test
+    public void getTabStops_cachedUntilPropertyChanges() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        List<List<TabStop>> events = new ArrayList<>();
+        rte.addTabStopsChangedListener(event -> {
+            Assert.assertFalse(event.isFromClient());
+            events.add(event.getTabStops());
+        });
+        rte.setTabStops(Arrays.asList(
+                new TabStop(TabStop.Direction.LEFT, 100),
+                new TabStop(TabStop.Direction.RIGHT, 250)));
+
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals(2, events.get(0).size());
+        Assert.assertEquals(TabStop.Direction.RIGHT,
+                events.get(0).get(1).getDirection());
+        Assert.assertSame(rte.getTabStops().get(0), rte.getTabStops().get(0));
+
+        rte.setTabStops(Collections.emptyList());
+        Assert.assertTrue(rte.getTabStops().isEmpty());
+    }
+
+    // Toolbar configuration
+
+    @Test
+    public void toolbarConfig_sharedJsonAndDiff() {
+        ToolbarConfig preset = ToolbarConfig.DEFAULT
+                .withHiddenButtons(ToolbarButton.H3, ToolbarButton.IMAGE)
+                .withShortcut(ToolbarConfig.Shortcut
+                        .forToolbarFocus(121, null, true, false));
+        JsonObject full = preset.toJson();
+        Assert.assertSame(full, preset.toJson());
+        Assert.assertTrue(full.getBoolean("full"));
+        Assert.assertFalse(full.getObject("buttons").getBoolean("h3"));
+        Assert.assertEquals(JsonType.NULL, full.getArray("shortcuts")
+                .getObject(0).get("shortKey").getType());
+
+        ToolbarConfig.Shortcut bold = ToolbarConfig.Shortcut
+                .forButton(ToolbarButton.BOLD, 66, true, false, false);
+        ToolbarConfig changed = preset.withButtonVisible(ToolbarButton.H3, true)
+                .withShortcut(bold).withoutShortcut(preset.getShortcuts().get(0));
+        JsonObject diff = changed.diff(preset);
+        Assert.assertFalse(diff.getBoolean("full"));
+        Assert.assertEquals("{\"h3\":true}", diff.getObject("buttons").toJson());
+        Assert.assertEquals(1, diff.getArray("shortcuts").length());
+        Assert.assertEquals("bold",
+                diff.getArray("shortcuts").getObject(0).getString("button"));
+        Assert.assertEquals(1, diff.getArray("removedShortcuts").length());
+        Assert.assertNull(changed.diff(changed.withShortcut(bold)));
+    }
+
+    @Test
+    public void toolbarConfig_updatedByLegacyMethods() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Assert.assertSame(ToolbarConfig.DEFAULT, rte.getToolbarConfig());
+
+        rte.addStandardToolbarButtonShortcut(ToolbarButton.BOLD, 66, true,
+                false, false);
+        rte.setToolbarButtonsVisibility(
+                Collections.singletonMap(ToolbarButton.CLEAN, false));
+        rte.addToobarFocusShortcut(121, false, false, true);
+
+        ToolbarConfig config = rte.getToolbarConfig();
+        Assert.assertFalse(config.isButtonVisible(ToolbarButton.CLEAN));
+        Assert.assertTrue(config.isButtonVisible(ToolbarButton.BOLD));
+        Assert.assertEquals(2, config.getShortcuts().size());
+        Assert.assertEquals(ToolbarButton.BOLD,
+                config.getShortcuts().get(0).getButton());
+        Assert.assertEquals(ToolbarConfig.DEFAULT
+                .withShortcut(ToolbarConfig.Shortcut.forButton(
+                        ToolbarButton.BOLD, 66, true, false, false))
+                .withHiddenButtons(ToolbarButton.CLEAN)
+                .withShortcut(ToolbarConfig.Shortcut.forToolbarFocus(121,
+                        false, false, true)),
+                config);
+    }
+
+    // Internationalization
+
+    @Test
+    public void i18n_jsonCachedUntilChanged() {
+        RichTextEditorI18n i18n = new RichTextEditorI18n().setUndo("Undo");
+        JsonObject json = i18n.toJson();
+        Assert.assertSame(json, i18n.toJson());
+        Assert.assertEquals("Undo", json.getString("undo"));
+
+        i18n.setRedo("Redo");
+        Assert.assertNotSame(json, i18n.toJson());
+        Assert.assertEquals("Redo", i18n.toJson().getString("redo"));
+    }
+
+    @Test
+    public void i18n_sharedPerResourceBundle() {
+        ResourceBundle bundle = new ListResourceBundle() {
+            @Override
+            protected Object[][] getContents() {
+                return new Object[][] { { "undo", "Rückgängig" },
+                        { "clean", "Formatierung entfernen" } };
+            }
+        };
+        RichTextEditorI18n i18n = RichTextEditorI18n.fromResourceBundle(bundle);
+        Assert.assertSame(i18n, RichTextEditorI18n.fromResourceBundle(bundle));
+        Assert.assertEquals("Rückgängig", i18n.getUndo());
+        Assert.assertEquals("Formatierung entfernen",
+                i18n.toJson().getString("clean"));
+        Assert.assertNull(i18n.getRedo());
+
+        thrown.expect(UnsupportedOperationException.class);
+        i18n.setUndo("Undo");
+    }
+
     // Decoration group sanitization
 
     @Test
@@ -157,6 +1204,216 @@ public class RichTextEditorTest {
                 rte.sanitize("<img src=\"data:image/gif;base64,R0lGODlhAQABAIAAAAAAAP///ywAAAAAAQABAAACAUwAOw==\">"));
     }
 
+    @Test
+    public void sanitizeImgTagWithStoredImageSource_srcAttributePersist() {
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        Assert.assertEquals("<img src=\"vcf-images/ab12.png\">",
+                rte.sanitize("<img src=\"vcf-images/ab12.png\">"));
+        Assert.assertEquals("<img src=\"vcf-images/ab12.png?width=320\">",
+                rte.sanitize("<img src=\"vcf-images/ab12.png?width=320\">"));
+        Assert.assertEquals("<img>",
+                rte.sanitize("<img src=\"vcf-images/../x.png?a\">"));
+    }
+
+    // Image store
+
+    @Test
+    public void fileSystemImageStore_identicalImagesStoredOnce()
+            throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath().resolve("images");
+        FileSystemImageStore store = new FileSystemImageStore(directory);
+        byte[] image = "not really a png".getBytes(StandardCharsets.UTF_8);
+        String id = store.store(new ByteArrayInputStream(image), "image/png");
+        Assert.assertTrue(id.matches("[0-9a-f]{64}\\.png"));
+        Assert.assertEquals(id,
+                store.store(new ByteArrayInputStream(image), "image/png"));
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals(1, files.count());
+        }
+        try (InputStream in = store.read(id)) {
+            Assert.assertArrayEquals(image, in.readAllBytes());
+        }
+        Assert.assertEquals("image/png", store.getMimeType(id));
+        Assert.assertEquals("vcf-images/" + id, ImageStore.getReference(id));
+    }
+
+    @Test
+    public void imageUpload_parallelUploadsKeptApart() throws Exception {
+        FileSystemImageStore store = new FileSystemImageStore(
+                temporaryFolder.getRoot().toPath());
+        EnhancedRichTextEditor rte = new EnhancedRichTextEditor();
+        UI.setCurrent(new UI());
+        try {
+            rte.setImageStore(store);
+        } finally {
+            UI.setCurrent(null);
+        }
+        rte.setMaxImageSize(1000);
+        EnhancedRichTextEditor.ImageUpload upload = rte.new ImageUpload();
+        byte[] first = createImage(4, 2, "png", "image/png").getData();
+        byte[] second = createImage(2, 4, "png", "image/png").getData();
+
+        // both streams are opened before either is written, like Flow
+        // does for parallel requests
+        upload.streamingStarted(new StreamingStartEventImpl("a", "image/png",
+                first.length));
+        OutputStream outA = upload.getOutputStream();
+        upload.streamingStarted(new StreamingStartEventImpl("b", "image/png",
+                second.length));
+        OutputStream outB = upload.getOutputStream();
+        upload.streamingStarted(new StreamingStartEventImpl("c", "image/png",
+                2000));
+        OutputStream outC = upload.getOutputStream();
+        outB.write(second);
+        outA.write(first);
+        try {
+            outC.write(new byte[1001]);
+            Assert.fail("The upload exceeding the maximum size was written");
+        } catch (IOException e) {
+            upload.streamingFailed(new StreamingErrorEventImpl("c",
+                    "image/png", 2000, 0, e));
+        }
+        upload.streamingFinished(new StreamingEndEventImpl("a", "image/png",
+                first.length));
+        upload.streamingFinished(new StreamingEndEventImpl("b", "image/png",
+                second.length));
+
+        Method resolve = EnhancedRichTextEditor.class
+                .getDeclaredMethod("resolveImageUpload", String.class);
+        resolve.setAccessible(true);
+        for (Object[] expected : new Object[][] { { "a", first },
+                { "b", second } }) {
+            String reference = (String) resolve.invoke(rte, expected[0]);
+            try (InputStream in = store.read(
+                    reference.substring(ImageStore.PATH.length()))) {
+                Assert.assertArrayEquals((byte[]) expected[1],
+                        in.readAllBytes());
+            }
+        }
+        Assert.assertNull(resolve.invoke(rte, "c"));
+    }
+
+    @Test
+    public void imageRequestHandler_servesRegisteredStoreWithoutSession()
+            throws IOException {
+        Path directory = temporaryFolder.getRoot().toPath();
+        byte[] image = "not really a png".getBytes(StandardCharsets.UTF_8);
+        String id = new FileSystemImageStore(directory)
+                .store(new ByteArrayInputStream(image), "image/png");
+        // an equal store, as created by another part of the application
+        ImageStore.register(new FileSystemImageStore(directory));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VaadinRequest request = stub(VaadinRequest.class,
+                method -> "getPathInfo".equals(method) ? "/vcf-images/" + id
+                        : null);
+        VaadinResponse response = stub(VaadinResponse.class,
+                method -> "getOutputStream".equals(method) ? out : null);
+        Assert.assertTrue(new ImageRequestHandler().handleRequest(null,
+                request, response));
+        Assert.assertArrayEquals(image, out.toByteArray());
+    }
+
+    private static <T> T stub(Class<T> type,
+            Function<String, Object> answers) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+                new Class<?>[] { type },
+                (proxy, method, args) -> answers.apply(method.getName())));
+    }
+
+    @Test
+    public void fileSystemImageStore_unknownOrInvalidIdNotRead()
+            throws IOException {
+        FileSystemImageStore store = new FileSystemImageStore(
+                temporaryFolder.getRoot().toPath());
+        Assert.assertNull(store.read(
+                "0000000000000000000000000000000000000000000000000000000000000000.png"));
+        Assert.assertNull(store.read("../secret.png"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fileSystemImageStore_unsupportedTypeRejected()
+            throws IOException {
+        new FileSystemImageStore(temporaryFolder.getRoot().toPath()).store(
+                new ByteArrayInputStream(new byte[1]), "image/svg+xml");
+    }
+
+    @Test
+    public void downscaleImage_scaledAndReencoded() throws IOException {
+        ImageData image = ImageProcessor.downscale(100)
+                .process(createImage(400, 200, "bmp", "image/bmp"));
+        Assert.assertEquals("image/png", image.getMimeType());
+        BufferedImage scaled = ImageIO
+                .read(new ByteArrayInputStream(image.getData()));
+        Assert.assertEquals(100, scaled.getWidth());
+        Assert.assertEquals(50, scaled.getHeight());
+
+        image = ImageProcessor.downscale(1000)
+                .process(createImage(40, 20, "jpeg", "image/jpeg"));
+        Assert.assertEquals("image/jpeg", image.getMimeType());
+        Assert.assertEquals(40, ImageIO
+                .read(new ByteArrayInputStream(image.getData())).getWidth());
+
+        ImageData gif = createImage(400, 200, "gif", "image/gif");
+        Assert.assertSame(gif, ImageProcessor.downscale(100).process(gif));
+    }
+
+    @Test
+    public void downscaleImage_subsampledAndTooManyPixelsRejected()
+            throws IOException {
+        ImageData image = ImageProcessor.downscale(100)
+                .process(createImage(2000, 1000, "png", "image/png"));
+        BufferedImage scaled = ImageIO
+                .read(new ByteArrayInputStream(image.getData()));
+        Assert.assertEquals(100, scaled.getWidth());
+        Assert.assertEquals(50, scaled.getHeight());
+
+        // a tiny file declaring a 20000x20000 image in its header
+        byte[] data = createImage(1, 1, "png", "image/png").getData();
+        ByteBuffer header = ByteBuffer.wrap(data);
+        header.putInt(16, 20000).putInt(20, 20000);
+        CRC32 crc = new CRC32();
+        crc.update(data, 12, 17);
+        header.putInt(29, (int) crc.getValue());
+        thrown.expect(IllegalArgumentException.class);
+        ImageProcessor.downscale(100)
+                .process(new ImageData(data, "image/png"));
+    }
+
+    @Test
+    public void imageVariantCache_widthsRoundedAndLeastRecentlyUsedEvicted()
+            throws IOException {
+        Assert.assertEquals(320, ImageVariantCache.variantWidth(300));
+        Assert.assertEquals(-1, ImageVariantCache.variantWidth(5000));
+
+        FileSystemImageStore store = new FileSystemImageStore(
+                temporaryFolder.getRoot().toPath());
+        ImageData original = createImage(800, 400, "png", "image/png");
+        String id = store.store(new ByteArrayInputStream(original.getData()),
+                original.getMimeType());
+        ImageVariantCache unbounded = new ImageVariantCache(Long.MAX_VALUE);
+        // room for one of the two variants only
+        ImageVariantCache cache = new ImageVariantCache(Math.max(
+                unbounded.get(store, id, 160).getData().length,
+                unbounded.get(store, id, 320).getData().length));
+        ImageData variant = cache.get(store, id, 160);
+        Assert.assertEquals(160, ImageIO
+                .read(new ByteArrayInputStream(variant.getData())).getWidth());
+        Assert.assertSame(variant, cache.get(store, id, 160));
+        cache.get(store, id, 320);
+        Assert.assertNotSame(variant, cache.get(store, id, 160));
+        Assert.assertNull(cache.get(store, "unknown.png", 160));
+    }
+
+    private static ImageData createImage(int width, int height, String format,
+            String mimeType) throws IOException {
+        BufferedImage image = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return new ImageData(out.toByteArray(), mimeType);
+    }
+
     // Blockquote sanitization
 
     @Test